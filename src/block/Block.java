@@ -0,0 +1,52 @@
+package block;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The Block interface represents one block of a message, as produced by a
+ * BlockStream. The bytes of a block may only be read while the stream is
+ * passing it, and only once.
+ */
+
+public interface Block {
+
+	/**
+	 * Returns the index of the block in the message, from 0 to n - 1.
+	 *
+	 * @return the index of the block
+	 */
+	public int getIndex();
+
+	/**
+	 * Passes the bytes of the block to an action, as one or more read-only views
+	 * in order. The views must not be kept after the action returns.
+	 *
+	 * @param action the action receiving each view
+	 * @throws java.io.UncheckedIOException if an I/O error occurs while reading the
+	 *                                      block
+	 */
+	public void forEachSegment(Consumer<ByteBuffer> action);
+
+}
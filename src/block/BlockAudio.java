@@ -0,0 +1,160 @@
+package block;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The BlockAudio class implements the Blockfy interface for uncompressed WAV
+ * audio, dividing the samples into windows of a fixed duration, so that
+ * modifications can be located in time. The block size is the duration of a
+ * window in milliseconds. Window k starts at frame floor(k * ms * rate / 1000),
+ * so windows do not drift from the time they stand for. The first block also
+ * holds the header chunks, and the last block any chunks after the samples, so
+ * the blocks make up the file in order. The sample format is recorded in the
+ * block separation parameters.
+ */
+
+public class BlockAudio implements Blockfy, StreamingBlockfy {
+
+	/**
+	 * Divides a WAV file into time windows.
+	 * 
+	 * @param audioFileName the name of the audio file to be divided
+	 * @param blockChoice   the strategy choice: 0 for fixing the duration of the
+	 *                      windows, 1 for fixing the number of windows
+	 * @param number        the duration in milliseconds if blockChoice is 0, or
+	 *                      the number of windows if blockChoice is 1
+	 * 
+	 * @return a BlockedMessage object containing the windows over the mapped
+	 *         file, with file type "audio"
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1
+	 */
+	@Override
+	public BlockedMessage blockSeparation(String audioFileName, int blockChoice, int number) {
+		try (FileChannel channel = FileChannel.open(Paths.get(audioFileName), StandardOpenOption.READ)) {
+			WAVReader audio = new WAVReader(audioFileName);
+			LargeBuffer message = LargeBuffer.map(channel);
+			int window = windowMillis(audio, blockChoice, number);
+			return new BlockedMessage(message, windowOffsets(audio, window, message.size()), window, "audio",
+					parameters(audio));
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Opens a WAV file as a stream of time windows, read in large sequential
+	 * chunks.
+	 * 
+	 * @param audioFileName the name of the audio file to be divided
+	 * @param blockChoice   the strategy choice: 0 for fixing the duration of the
+	 *                      windows, 1 for fixing the number of windows
+	 * @param number        the duration in milliseconds if blockChoice is 0, or
+	 *                      the number of windows if blockChoice is 1
+	 * 
+	 * @return a BlockStream producing the same blocks as blockSeparation
+	 * @throws IOException              if an I/O error occurs while opening the
+	 *                                  file
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1
+	 */
+	@Override
+	public BlockStream openStream(String audioFileName, int blockChoice, int number) throws IOException {
+		WAVReader audio = new WAVReader(audioFileName);
+		FileChannel channel = FileChannel.open(Paths.get(audioFileName), StandardOpenOption.READ);
+		int window = windowMillis(audio, blockChoice, number);
+		return new OffsetStream(new ChannelReader(channel), windowOffsets(audio, window, channel.size()), window,
+				"audio", parameters(audio));
+	}
+
+	/**
+	 * Computes the duration of the windows in milliseconds.
+	 * 
+	 * @param audio       the layout of the audio file
+	 * @param blockChoice the strategy choice: 0 for fixing the duration of the
+	 *                    windows, 1 for fixing the number of windows
+	 * @param number      the duration in milliseconds if blockChoice is 0, or the
+	 *                    number of windows if blockChoice is 1
+	 * @return the duration of the windows
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1, or if a
+	 *                                  window would be shorter than one frame
+	 */
+	private static int windowMillis(WAVReader audio, int blockChoice, int number) {
+		if (number < 1) {
+			throw new IllegalArgumentException("The block size or number of blocks must be positive.");
+		}
+		int rate = audio.getSampleRate();
+		long window;
+		if (blockChoice == 0) { // fixing the duration
+			window = number;
+			if (window * rate < 1000) {
+				throw new IllegalArgumentException("Invalid choice. A window of " + number + " ms has no samples.");
+			}
+		} else if (blockChoice == 1) { // fixing the number of windows
+			long duration = (audio.getFrames() * 1000 + rate - 1) / rate; // in milliseconds, rounded up
+			window = Math.max((duration + number - 1) / number, (1000 + rate - 1) / rate);
+		} else {
+			throw new IllegalArgumentException(
+					"Invalid choice. Choose '0' for fixing block size and '1' for fixing number of blocks.");
+		}
+		return (int) Math.min(window, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Computes the offsets of the windows in the file.
+	 * 
+	 * @param audio  the layout of the audio file
+	 * @param window the duration of the windows in milliseconds
+	 * @param size   the size of the file
+	 * @return the offsets of the blocks
+	 * @throws IllegalStateException if there are more than Integer.MAX_VALUE - 1
+	 *                               windows
+	 */
+	private static long[] windowOffsets(WAVReader audio, int window, long size) {
+		long frames = audio.getFrames();
+		long framesTimesThousand = frames * 1000;
+		long step = (long) window * audio.getSampleRate(); // frames per window, times 1000
+		long windows = Math.max(1, (framesTimesThousand + step - 1) / step);
+		if (windows >= Integer.MAX_VALUE - 1) {
+			throw new IllegalStateException("Too many blocks: " + windows);
+		}
+		long[] offsets = new long[(int) windows + 1];
+		for (int k = 1; k < windows; k++) {
+			offsets[k] = audio.getDataOffset() + (k * step / 1000) * audio.getBlockAlign();
+		}
+		offsets[(int) windows] = size;
+		return offsets;
+	}
+
+	/**
+	 * Records the sample format.
+	 */
+	private static String parameters(WAVReader audio) {
+		return "rate=" + audio.getSampleRate() + ",channels=" + audio.getChannels() + ",bits="
+				+ audio.getBitsPerSample();
+	}
+
+}
@@ -0,0 +1,158 @@
+package block;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The BlockBinary class implements the Blockfy interface for files of any type
+ * (PDFs, archives, database pages, ...). The file is divided into blocks of a
+ * fixed number of bytes, without parsing it: the block boundaries follow from
+ * the file size alone. The file can also be read as a stream of blocks, in
+ * large aligned reads through one reusable buffer.
+ */
+
+public class BlockBinary implements Blockfy, StreamingBlockfy {
+
+	/**
+	 * Divides a file into blocks of a fixed number of bytes, based on a specified
+	 * block size or the desired number of blocks. The last block holds the
+	 * remaining bytes.
+	 * 
+	 * @param fileName    the name of the file to be divided
+	 * @param blockChoice the method of division: 0 for fixing block size, 1 for
+	 *                    fixing the number of blocks
+	 * @param number      the block size in bytes if blockChoice is 0, or the
+	 *                    number of blocks if blockChoice is 1
+	 * 
+	 * @return a BlockedMessage object containing the blocks, block size, number of
+	 *         blocks, the original message, and the file type ("binary")
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1
+	 */
+	@Override
+	public BlockedMessage blockSeparation(String fileName, int blockChoice, int number) {
+		try {
+			LargeBuffer message = GzipInput.map(fileName, false);
+			long length = message.size();
+
+			int blockSize = blockSize(length, blockChoice, number);
+			int numberOfBlocks = (int) ((length + blockSize - 1) / blockSize);
+			long[] offsets = new long[numberOfBlocks + 1];
+			for (int i = 1; i < numberOfBlocks; i++) {
+				offsets[i] = (long) i * blockSize;
+			}
+			offsets[numberOfBlocks] = length;
+			return new BlockedMessage(message, offsets, blockSize, "binary");
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Opens a file as a stream of blocks of a fixed number of bytes, read in
+	 * chunks of ChannelReader.CHUNK_SIZE bytes.
+	 * 
+	 * @param fileName    the name of the file to be divided
+	 * @param blockChoice the method of division: 0 for fixing block size, 1 for
+	 *                    fixing the number of blocks
+	 * @param number      the block size in bytes if blockChoice is 0, or the
+	 *                    number of blocks if blockChoice is 1
+	 * 
+	 * @return a BlockStream producing the same blocks as blockSeparation
+	 * @throws IOException              if an I/O error occurs while opening the
+	 *                                  file
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1
+	 */
+	@Override
+	public BlockStream openStream(String fileName, int blockChoice, int number) throws IOException {
+		long length = GzipInput.size(fileName, false);
+		int blockSize = blockSize(length, blockChoice, number);
+		int numberOfBlocks = (int) ((length + blockSize - 1) / blockSize);
+		return new BinaryStream(new ChannelReader(GzipInput.open(fileName, false)), blockSize, numberOfBlocks);
+	}
+
+	/**
+	 * The BinaryStream class passes the fixed-size blocks of a file as they are
+	 * read.
+	 */
+	private static class BinaryStream extends BlockStream {
+
+		private ChannelReader reader;
+
+		BinaryStream(ChannelReader reader, int blockSize, int numberOfBlocks) {
+			super(blockSize, numberOfBlocks, "binary", "");
+			this.reader = reader;
+		}
+
+		@Override
+		protected void readBlock(int index, Consumer<ByteBuffer> action) throws IOException {
+			long remaining = getBlockSize();
+			while (remaining > 0 && reader.fill()) {
+				ByteBuffer buffer = reader.buffer();
+				int start = buffer.position();
+				int length = (int) Math.min(buffer.remaining(), remaining);
+				action.accept(buffer.slice(start, length).asReadOnlyBuffer());
+				buffer.position(start + length);
+				remaining -= length;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Computes the block size in bytes from the block choice.
+	 * 
+	 * @param length      the size of the file in bytes
+	 * @param blockChoice 0 for fixing block size, 1 for fixing the number of
+	 *                    blocks
+	 * @param number      the block size if blockChoice is 0, or the number of
+	 *                    blocks if blockChoice is 1
+	 * @return the block size in bytes
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1, or if
+	 *                                  the blocks would be larger than 2 GB
+	 */
+	static int blockSize(long length, int blockChoice, int number) {
+		if (number < 1) {
+			throw new IllegalArgumentException("The block size or number of blocks must be positive.");
+		}
+		if (blockChoice == 0) { // fixing block size
+			return number;
+		} else if (blockChoice == 1) { // fixing number of blocks
+			long blockSize = Math.max(1, (length + number - 1) / number); // round up the block size
+			if (blockSize > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Blocks larger than 2 GB. Choose a larger number of blocks.");
+			}
+			return (int) blockSize;
+		} else {
+			throw new IllegalArgumentException(
+					"Invalid choice. Choose '0' for fixing block size and '1' for fixing number of blocks.");
+		}
+	}
+
+}
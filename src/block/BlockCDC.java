@@ -0,0 +1,190 @@
+package block;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The BlockCDC class implements the Blockfy interface with content-defined
+ * chunking: block boundaries are chosen by a rolling Gear hash over the bytes
+ * (as in FastCDC), not by position. Inserting or deleting bytes only changes
+ * the blocks around the edit, so the other blocks, and the CFF rows that do
+ * not contain the edited blocks, keep their hashes.
+ *
+ * @field minSize The minimum block size in bytes.
+ * @field averageSize The expected block size in bytes.
+ * @field maxSize The maximum block size in bytes.
+ */
+
+public class BlockCDC implements Blockfy {
+
+	private static final long[] GEAR = gearTable();
+
+	private int minSize;
+	private int averageSize;
+	private int maxSize;
+
+	// Constructor: sizes derived from the block choice
+	public BlockCDC() {
+	}
+
+	// Constructor: fixed sizes
+	public BlockCDC(int minSize, int averageSize, int maxSize) {
+		if (minSize < 1 || averageSize < minSize || maxSize < averageSize) {
+			throw new IllegalArgumentException("Invalid chunk sizes. Need 0 < min <= avg <= max.");
+		}
+		this.minSize = minSize;
+		this.averageSize = averageSize;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Divides a file into content-defined blocks. When the chunk sizes were not
+	 * given to the constructor, the average size is the block size if blockChoice
+	 * is 0, or the file size divided by the number of blocks if blockChoice is 1,
+	 * at most Integer.MAX_VALUE / 8; the minimum and maximum sizes are a quarter
+	 * and eight times the average.
+	 * 
+	 * @param fileName    the name of the file to be divided
+	 * @param blockChoice the method of division: 0 for fixing the average block
+	 *                    size, 1 for fixing the expected number of blocks
+	 * @param number      the average block size in bytes if blockChoice is 0, or
+	 *                    the expected number of blocks if blockChoice is 1
+	 * 
+	 * @return a BlockedMessage object containing the blocks, the average block
+	 *         size, the chunking parameters, and the file type ("cdc")
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1, or
+	 *                                  number is not positive
+	 */
+	@Override
+	public BlockedMessage blockSeparation(String fileName, int blockChoice, int number) {
+		try {
+			LargeBuffer message = GzipInput.map(fileName, false);
+
+			int min = minSize;
+			int average = averageSize;
+			int max = maxSize;
+			if (average == 0) {
+				if (number < 1) {
+					throw new IllegalArgumentException("The block size or number of blocks must be positive.");
+				}
+				if (blockChoice == 0) { // fixing block size
+					average = Math.min(Integer.MAX_VALUE / 8, number); // so that the maximum size fits
+				} else if (blockChoice == 1) { // fixing number of blocks
+					average = (int) Math.min(Integer.MAX_VALUE / 8, Math.max(64, message.size() / number));
+				} else {
+					throw new IllegalArgumentException(
+							"Invalid choice. Choose '0' for fixing block size and '1' for fixing number of blocks.");
+				}
+				min = Math.max(1, average / 4);
+				max = average * 8;
+			}
+
+			long[] offsets = createBlocks(message, min, average, max);
+			String parameters = "min=" + min + ",avg=" + average + ",max=" + max;
+			return new BlockedMessage(message, offsets, average, "cdc", parameters);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Divides a message into content-defined blocks.
+	 * 
+	 * @param message the file to be divided
+	 * @param min     the minimum block size
+	 * @param average the expected block size
+	 * @param max     the maximum block size
+	 * @return the offsets of the blocks in the message, where block i spans
+	 *         offsets[i] to offsets[i + 1]
+	 */
+	static long[] createBlocks(LargeBuffer message, int min, int average, int max) {
+		// log2 of the average, at least 3 so that the looser mask keeps a bit: a shift
+		// of 64 would leave all of them
+		int bits = 31 - Integer.numberOfLeadingZeros(Math.max(8, average));
+		long maskS = -1L << (64 - (bits + 2)); // harder to match before the average size
+		long maskL = -1L << (64 - (bits - 2)); // easier to match after it
+
+		long length = message.size();
+		long[] offsets = new long[16];
+		int numberOfBlocks = 0;
+		long start = 0;
+		while (start < length) {
+			long end = start + cut(message, start, length - start, min, average, max, maskS, maskL);
+			if (++numberOfBlocks == offsets.length) {
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			}
+			offsets[numberOfBlocks] = end;
+			start = end;
+		}
+		return Arrays.copyOf(offsets, numberOfBlocks + 1);
+	}
+
+	/**
+	 * Finds the length of the block starting at a given offset, using normalized
+	 * chunking: the hash is only tested after the minimum size, with a stricter
+	 * mask up to the average size and a looser one after it.
+	 */
+	private static int cut(LargeBuffer message, long start, long remaining, int min, int average, int max,
+			long maskS, long maskL) {
+		if (remaining <= min) {
+			return (int) remaining;
+		}
+		int n = (int) Math.min(remaining, max);
+		int normal = Math.min(average, n);
+		long fingerprint = 0;
+		int i = min;
+		for (; i < normal; i++) {
+			fingerprint = (fingerprint << 1) + GEAR[message.get(start + i) & 0xFF];
+			if ((fingerprint & maskS) == 0) {
+				return i + 1;
+			}
+		}
+		for (; i < n; i++) {
+			fingerprint = (fingerprint << 1) + GEAR[message.get(start + i) & 0xFF];
+			if ((fingerprint & maskL) == 0) {
+				return i + 1;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Builds the table of random values of the Gear hash. The values come from a
+	 * SplitMix64 generator with a fixed seed, so that signer and verifier always
+	 * use the same table.
+	 */
+	private static long[] gearTable() {
+		long[] table = new long[256];
+		long state = 0x4D5453534344434CL;
+		for (int i = 0; i < table.length; i++) {
+			long z = (state += 0x9E3779B97F4A7C15L);
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			table[i] = z ^ (z >>> 31);
+		}
+		return table;
+	}
+
+}
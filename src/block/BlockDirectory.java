@@ -0,0 +1,261 @@
+package block;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+import org.bouncycastle.crypto.Digest;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The BlockDirectory class implements the Blockfy interface for directory
+ * trees, so a whole tree is signed as one message and a modified file can be
+ * located. The tree is walked in parallel, and each regular file is hashed in
+ * parallel into a record holding its path relative to the tree, a zero byte
+ * and the digest of its content. The records, in ascending order of their
+ * paths, make up the message, and each block holds the records of a fixed
+ * number of files. Renaming or modifying a file changes its record; adding or
+ * removing a file changes the number of blocks, so the whole tree no longer
+ * verifies.
+ *
+ * Symbolic links are not followed, and only regular files are recorded.
+ *
+ * @field digests The supplier of the digests hashing the files, one per file.
+ */
+
+public class BlockDirectory implements Blockfy {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal
+			.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+
+	private Supplier<Digest> digests;
+
+	// Constructor
+	public BlockDirectory(Supplier<Digest> digests) {
+		this.digests = digests;
+	}
+
+	/**
+	 * Divides a directory tree into blocks of files.
+	 * 
+	 * @param directoryName the name of the directory to be divided
+	 * @param blockChoice   the strategy choice: 0 for fixing the number of files
+	 *                      per block, 1 for fixing the number of blocks
+	 * @param number        the number of files per block if blockChoice is 0, or
+	 *                      the number of blocks if blockChoice is 1
+	 * 
+	 * @return a DirectoryMessage holding the records of the files, or null if the
+	 *         tree cannot be read
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1, or if
+	 *                                  the directory holds no files
+	 */
+	@Override
+	public BlockedMessage blockSeparation(String directoryName, int blockChoice, int number) {
+		try {
+			Path root = Paths.get(directoryName);
+			if (!Files.isDirectory(root)) {
+				throw new IllegalArgumentException("Invalid choice. " + directoryName + " is not a directory.");
+			}
+			List<String> files = ForkJoinPool.commonPool().invoke(new WalkTask(root, root));
+			if (files.isEmpty()) {
+				throw new IllegalArgumentException("Invalid choice. " + directoryName + " holds no files.");
+			}
+			Collections.sort(files);
+			int blockSize = blockSize(files.size(), blockChoice, number);
+
+			byte[][] records = new byte[files.size()][];
+			ForkJoinPool.commonPool().invoke(new HashTask(root, files, records, 0, files.size(), digests));
+
+			int numberOfBlocks = (files.size() + blockSize - 1) / blockSize;
+			long[] offsets = new long[numberOfBlocks + 1];
+			long length = 0;
+			for (int i = 0; i < records.length; i++) {
+				length += records[i].length;
+				if ((i + 1) % blockSize == 0 || i + 1 == records.length) {
+					offsets[(i + blockSize) / blockSize] = length;
+				}
+			}
+			LargeBuffer message = LargeBuffer.allocate(length);
+			long offset = 0;
+			for (byte[] record : records) {
+				for (byte b : record) {
+					message.put(offset++, b);
+				}
+			}
+			return new DirectoryMessage(message, offsets, blockSize, files.toArray(new String[0]));
+		} catch (UncheckedIOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Computes the number of files per block.
+	 *
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1, or
+	 *                                  number is not positive
+	 */
+	private static int blockSize(int files, int blockChoice, int number) {
+		if (number < 1) {
+			throw new IllegalArgumentException("The block size or number of blocks must be positive.");
+		}
+		if (blockChoice == 0) { // fixing block size
+			return number;
+		} else if (blockChoice == 1) { // fixing number of blocks
+			return Math.max(1, (files + number - 1) / number); // round up the block size
+		} else {
+			throw new IllegalArgumentException(
+					"Invalid choice. Choose '0' for fixing block size and '1' for fixing number of blocks.");
+		}
+	}
+
+	/**
+	 * Builds the record of a file: its relative path, a zero byte, and the digest
+	 * of its content.
+	 */
+	private static byte[] record(Path root, String file, Digest digest) throws IOException {
+		ByteBuffer buffer = BUFFER.get();
+		try (FileChannel channel = FileChannel.open(root.resolve(file), StandardOpenOption.READ)) {
+			int read;
+			while ((read = channel.read(buffer.clear())) >= 0) {
+				digest.update(buffer.array(), 0, read);
+			}
+		}
+		byte[] path = file.getBytes(StandardCharsets.UTF_8);
+		byte[] record = new byte[path.length + 1 + digest.getDigestSize()];
+		System.arraycopy(path, 0, record, 0, path.length);
+		digest.doFinal(record, path.length + 1);
+		return record;
+	}
+
+	/**
+	 * The WalkTask class lists the regular files under a directory, walking its
+	 * subdirectories in parallel. The files are named by their path relative to
+	 * the root, with '/' between the names.
+	 */
+	private static class WalkTask extends RecursiveTask<List<String>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private Path root;
+		private Path directory;
+
+		WalkTask(Path root, Path directory) {
+			this.root = root;
+			this.directory = directory;
+		}
+
+		@Override
+		protected List<String> compute() {
+			List<String> files = new ArrayList<>();
+			List<WalkTask> subdirectories = new ArrayList<>();
+			try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+				for (Path entry : entries) {
+					if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+						WalkTask task = new WalkTask(root, entry);
+						task.fork();
+						subdirectories.add(task);
+					} else if (Files.isRegularFile(entry, LinkOption.NOFOLLOW_LINKS)) {
+						files.add(relativeName(entry));
+					}
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			for (WalkTask task : subdirectories) {
+				files.addAll(task.join());
+			}
+			return files;
+		}
+
+		private String relativeName(Path file) {
+			StringBuilder name = new StringBuilder();
+			for (Path part : root.relativize(file)) {
+				if (name.length() > 0) {
+					name.append('/');
+				}
+				name.append(part);
+			}
+			return name.toString();
+		}
+	}
+
+	/**
+	 * The HashTask class builds the records of a range of files, splitting the
+	 * range in halves down to single files.
+	 */
+	private static class HashTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private Path root;
+		private List<String> files;
+		private byte[][] records;
+		private int from;
+		private int to;
+		private Supplier<Digest> digests;
+
+		HashTask(Path root, List<String> files, byte[][] records, int from, int to, Supplier<Digest> digests) {
+			this.root = root;
+			this.files = files;
+			this.records = records;
+			this.from = from;
+			this.to = to;
+			this.digests = digests;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= 1) {
+				for (int i = from; i < to; i++) {
+					try {
+						records[i] = record(root, files.get(i), digests.get());
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new HashTask(root, files, records, from, middle, digests),
+					new HashTask(root, files, records, middle, to, digests));
+		}
+	}
+
+}
@@ -1,10 +1,9 @@
 package block;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.Consumer;
 
 /**
  * Copyright 2024, Dongxia (Mico) Luo
@@ -30,10 +29,27 @@ import java.util.List;
 /**
  * The BlockFile class implements the Blockfy interface, providing functionality
  * to divide text files into blocks based on either a specified block size or
- * the desired number of blocks.
+ * the desired number of blocks. The file is memory-mapped and its newlines are
+ * indexed in parallel, eight bytes at a time; the blocks are views over the
+ * mapping. The file can also be read as a stream of blocks, with one reusable
+ * buffer.
  */
 
-public class BlockFile implements Blockfy { // for text files
+public class BlockFile implements Blockfy, StreamingBlockfy { // for text files
+
+	private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+	private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+
+	private boolean inflate;
+
+	// Constructor: reads the file as it is stored
+	public BlockFile() {
+	}
+
+	// Constructor: inflates a gzip-compressed file as it is read if inflate is true
+	public BlockFile(boolean inflate) {
+		this.inflate = inflate;
+	}
 
 	/**
 	 * Divides a text file message into blocks based on a specified block size or
@@ -47,29 +63,30 @@ public class BlockFile implements Blockfy { // for text files
 	 * 
 	 * @return a BlockedMessage object containing the blocks, block size, number of
 	 *         blocks, the original message, and the file type
-	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1, or the
+	 *                                  file is to be inflated
 	 */
 
 	@Override
 	public BlockedMessage blockSeparation(String textFileName, int blockChoice, int number) {
 		try {
-			List<byte[]> blocks = new ArrayList<>();
 			int blockSize = 0;
 
-			byte[] message = Files.readAllBytes(Paths.get(textFileName));
-			int totalLines = calculateTotalLines(message);
+			LargeBuffer message = GzipInput.map(textFileName, inflate);
+
+			LineIndex index = LineIndex.build(message); // newlines counted in parallel
 
 			if (blockChoice == 0) { // fixing block size
 				blockSize = number;
 			} else if (blockChoice == 1) { // fixing number of blocks
-				blockSize = (int) Math.round((double) totalLines / number); // round up the block size
+				long totalLines = index.getTotalLines();
+				blockSize = (int) Math.max(1, Math.round((double) totalLines / number)); // round up the block size
 			} else {
 				throw new IllegalArgumentException(
 						"Invalid choice. Choose '0' for fixing block size and '1' for fixing number of blocks.");
 			}
-			blocks = createBlocks(message, blockSize);
-			int numberOfBlocks = blocks.size();
-			return new BlockedMessage(blocks, blockSize, numberOfBlocks, message, "text");
+			long[] offsets = index.blockOffsets(blockSize);
+			return new BlockedMessage(message, offsets, blockSize, "text");
 		} catch (IOException e) {
 			e.printStackTrace();
 			return null;
@@ -77,43 +94,124 @@ public class BlockFile implements Blockfy { // for text files
 	}
 
 	/**
-	 * Divides a message into blocks based on the specified block size.
+	 * Opens a text file as a stream of blocks, read through one reusable buffer.
+	 * The file is read twice: once to count its lines, which gives the number of
+	 * blocks, and once as the blocks are passed.
 	 * 
-	 * @param message   the byte array of the text file to be divided
-	 * @param blockSize the size of each block in lines
-	 * @return a list of byte arrays, each representing a block of the message
+	 * @param textFileName the name of the text file to be divided
+	 * @param blockChoice  the method of division: 0 for fixing block size, 1 for
+	 *                     fixing the number of blocks
+	 * @param number       the block size if blockChoice is 0, or the number of
+	 *                     blocks if blockChoice is 1
+	 * 
+	 * @return a BlockStream producing the same blocks as blockSeparation
+	 * @throws IOException              if an I/O error occurs while reading the
+	 *                                  file
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1
 	 */
+	@Override
+	public BlockStream openStream(String textFileName, int blockChoice, int number) throws IOException {
+		long newlines = 0;
+		boolean endsWithNewline = true;
+		try (ChannelReader reader = new ChannelReader(GzipInput.open(textFileName, inflate))) {
+			while (reader.fill()) {
+				ByteBuffer buffer = reader.buffer();
+				newlines += countNewlines(buffer);
+				endsWithNewline = buffer.get(buffer.limit() - 1) == 10;
+				buffer.position(buffer.limit());
+			}
+		}
+
+		int blockSize = 0;
+		if (blockChoice == 0) { // fixing block size
+			blockSize = number;
+		} else if (blockChoice == 1) { // fixing number of blocks
+			long totalLines = newlines + (endsWithNewline ? 0 : 1);
+			blockSize = (int) Math.max(1, Math.round((double) totalLines / number)); // round up the block size
+		} else {
+			throw new IllegalArgumentException(
+					"Invalid choice. Choose '0' for fixing block size and '1' for fixing number of blocks.");
+		}
+		// Full blocks, plus the remaining lines
+		int numberOfBlocks = (int) (newlines / blockSize + (newlines % blockSize != 0 || !endsWithNewline ? 1 : 0));
 
-	private static List<byte[]> createBlocks(byte[] message, int blockSize) {
-		int lineCount = 0;
-		List<Byte> singleBlock = new ArrayList<>();
-		List<byte[]> blocks = new ArrayList<>();
-
-		for (byte b : message) {
-			singleBlock.add(b);
-
-			if (b == 10) { // Check for newline character
-				lineCount++;
-				if (lineCount % blockSize == 0) {
-					byte[] blockBytes = new byte[singleBlock.size()];
-					for (int i = 0; i < singleBlock.size(); i++) {
-						blockBytes[i] = singleBlock.get(i);
-					}
-					blocks.add(blockBytes);
-					singleBlock.clear();
+		ChannelReader reader = new ChannelReader(GzipInput.open(textFileName, inflate));
+		return new TextStream(reader, blockSize, numberOfBlocks, GzipInput.parameters(inflate));
+	}
+
+	/**
+	 * The TextStream class passes the blocks of a text file as they are read.
+	 */
+	private static class TextStream extends BlockStream {
+
+		private ChannelReader reader;
+
+		TextStream(ChannelReader reader, int blockSize, int numberOfBlocks, String parameters) {
+			super(blockSize, numberOfBlocks, "text", parameters);
+			this.reader = reader;
+		}
+
+		@Override
+		protected void readBlock(int index, Consumer<ByteBuffer> action) throws IOException {
+			long needed = getBlockSize(); // newlines left in this block
+			boolean last = index == getNumberOfBlocks() - 1;
+			while (reader.fill()) {
+				ByteBuffer buffer = reader.buffer();
+				int start = buffer.position();
+				int limit = buffer.limit();
+				long found = last ? -1 : findNewline(buffer, start, limit, needed);
+				int end = found < 0 ? limit : (int) found;
+				action.accept(buffer.slice(start, end - start).asReadOnlyBuffer());
+				buffer.position(end);
+				if (found >= 0) {
+					return;
 				}
+				needed += found + 1; // found is -1 minus the newlines seen
 			}
 		}
 
-		// If there are remaining lines that don't fill a complete block
-		if (!singleBlock.isEmpty()) {
-			byte[] remainingBytes = new byte[singleBlock.size()];
-			for (int i = 0; i < singleBlock.size(); i++) {
-				remainingBytes[i] = singleBlock.get(i);
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Finds the end of the n-th newline in part of a buffer, eight bytes at a
+	 * time.
+	 * 
+	 * @param buffer a little-endian buffer
+	 * @param start  the offset to start from
+	 * @param limit  the offset to stop at
+	 * @param n      the number of newlines to find
+	 * @return the offset after the n-th newline if there is one, or -1 minus the
+	 *         number of newlines found otherwise
+	 */
+	private static long findNewline(ByteBuffer buffer, int start, int limit, long n) {
+		long seen = 0;
+		int i = start;
+		for (; i < limit && (i & 7) != 0; i++) { // align to eight bytes
+			if (buffer.get(i) == 10 && ++seen == n) {
+				return i + 1;
+			}
+		}
+		for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+			long matches = newlines(buffer.getLong(i));
+			int count = Long.bitCount(matches);
+			if (seen + count >= n) {
+				for (long k = n - seen; k > 1; k--) {
+					matches &= matches - 1; // Clear the lowest newline
+				}
+				return i + (Long.numberOfTrailingZeros(matches) >>> 3) + 1;
+			}
+			seen += count;
+		}
+		for (; i < limit; i++) {
+			if (buffer.get(i) == 10 && ++seen == n) {
+				return i + 1;
 			}
-			blocks.add(remainingBytes);
 		}
-		return blocks;
+		return -1 - seen;
 	}
 
 	/**
@@ -123,18 +221,65 @@ public class BlockFile implements Blockfy { // for text files
 	 * @return the total number of lines in the message
 	 */
 	public static int calculateTotalLines(byte[] message) {
-		int totalLineNumber = 0;
-		for (byte b : message) {
-			if (b == 10) { // Check for newline character
-				totalLineNumber++;
+		return (int) calculateTotalLines(LargeBuffer.wrap(ByteBuffer.wrap(message)));
+	}
+
+	/**
+	 * Calculates the total number of lines in a message, counting the newlines of
+	 * its segments in parallel.
+	 * 
+	 * @param message the message
+	 * @return the total number of lines in the message
+	 */
+	public static long calculateTotalLines(LargeBuffer message) {
+		return LineIndex.build(message).getTotalLines();
+	}
+
+	/**
+	 * Counts the newlines in a buffer, eight bytes at a time.
+	 * 
+	 * @param buffer the bytes to scan, from position zero to the limit
+	 * @return the number of newlines
+	 */
+	static long countNewlines(ByteBuffer buffer) {
+		ByteBuffer words = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int limit = words.limit();
+		long count = 0;
+
+		int i = 0;
+		for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+			count += Long.bitCount(newlines(words.getLong(i)));
+		}
+		for (; i < limit; i++) {
+			if (words.get(i) == 10) { // Check for newline character
+				count++;
 			}
 		}
+		return count;
+	}
 
-		// Add the last lines
-		if (message.length > 0 && message[message.length - 1] != 10) {
-			totalLineNumber++;
-		}
-		return totalLineNumber;
+	/**
+	 * Marks the newline bytes of an eight-byte word. The high bit of each byte of
+	 * the result is set exactly when that byte of the word is a newline.
+	 * 
+	 * @param word eight bytes of the message
+	 * @return a mask with the high bit set for every newline byte
+	 */
+	static long newlines(long word) {
+		return matches(word, NEWLINES);
+	}
+
+	/**
+	 * Marks the bytes of an eight-byte word equal to a given byte. The high bit of
+	 * each byte of the result is set exactly when that byte of the word matches.
+	 * 
+	 * @param word    eight bytes of the message
+	 * @param pattern the byte to find, repeated in all eight bytes
+	 * @return a mask with the high bit set for every matching byte
+	 */
+	static long matches(long word, long pattern) {
+		long x = word ^ pattern; // matching bytes become zero
+		return ~(((x & LOW_BITS) + LOW_BITS) | x | LOW_BITS);
 	}
 
 }
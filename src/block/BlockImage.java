@@ -1,12 +1,11 @@
 package block;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
 
 /**
  * Copyright 2024, Dongxia (Mico) Luo
@@ -34,10 +33,28 @@ import java.util.List;
 /**
  * The BlockImage class implements the Blockfy interface. This class provides
  * functionality to divide image files into blocks based on a specified block
- * size or the number of desired blocks.
+ * size or the number of desired blocks. Images are read by PNMReader, and the
+ * blocks are tiles of its raster. The tiles of a colour image hold its
+ * interleaved samples as stored, unless each channel is divided separately.
+ * The image can also be read as a stream of tiles, one band of rows at a time.
+ *
+ * @field separateChannels Whether each channel of a colour image is divided
+ *        into its own tiles.
  */
 
-public class BlockImage implements Blockfy { // for image file
+public class BlockImage implements Blockfy, StreamingBlockfy { // for image file
+
+	private boolean separateChannels;
+
+	// Constructor
+	public BlockImage() {
+		this(false);
+	}
+
+	// Constructor: choosing how colour channels are divided
+	public BlockImage(boolean separateChannels) {
+		this.separateChannels = separateChannels;
+	}
 
 	/**
 	 * Divides an image file into blocks based on a specified strategy of either
@@ -51,7 +68,8 @@ public class BlockImage implements Blockfy { // for image file
 	 * 
 	 * @return a BlockedMessage object containing the divided blocks, block size,
 	 *         number of blocks, the original message in bytes, and the file type
-	 *         ("image")
+	 *         ("image"); with separate channels, the number of blocks covers
+	 *         every channel
 	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1
 	 */
 
@@ -59,123 +77,228 @@ public class BlockImage implements Blockfy { // for image file
 	public BlockedMessage blockSeparation(String imageFileName, int blockChoice, int number) {
 		try {
 			// Process the message
-			ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-			byte[][] imageArray = processImage(imageFileName, byteStream);
-			byte[] message = byteStream.toByteArray();
-
-			int rows = imageArray.length;
-			int columns = imageArray[0].length;
-
-			List<byte[]> blocks = new ArrayList<>();
-			int blockSize = 0;
-			if (blockChoice == 0) { // fixing block size
-				blockSize = (number > rows || number > columns) ? Math.max(rows, columns) : number; // Handle the case
-																									// where the block
-																									// size is bigger
-																									// than the
-																									// dimension
-
-			} else if (blockChoice == 1) { // fixing number of blocks
-				if (number > rows * columns) { // Handle the case where the number of blocks chosen bigger than the
-												// dimension of the image.
-					blockSize = 1;
-				} else {
-					double square = (double) rows * columns / number;
-					double sideDimension = Math.sqrt(square);
-					blockSize = (int) (sideDimension >= Math.floor(sideDimension) + 0.5 ? Math.ceil(sideDimension)
-							: Math.floor(sideDimension));
-				}
-			} else {
-				throw new IllegalArgumentException(
-						"Invalid choice. Choose '0' for fixing block size and '1' for fixing number of blocks.");
-			}
-			blocks = createblocks(imageArray, blockSize);
-			int numberOfBlocks = blocks.size();
-			return new BlockedMessage(blocks, blockSize, numberOfBlocks, message, "image");
+			PNMReader image = new PNMReader(imageFileName);
+
+			int blockSize = blockSize(image, blockChoice, number);
+			return new TiledMessage(image.getRaster(), image.getRows(), image.getColumns(), image.getChannels(),
+					separateChannels && image.getChannels() > 1, blockSize, "image",
+					separateChannels ? "channels=separate" : "");
 		} catch (Exception e) {
 			e.printStackTrace();
 			return null;
 		}
 	}
 
-	private static List<byte[]> createblocks(byte[][] imageArray, int blockSize) {
-		List<byte[]> blocks = new ArrayList<>();
-		int rows = imageArray.length;
-		int columns = imageArray[0].length;
-
-		// Calculate the number of rows and columns for the blocks
-		int blockRows = (rows + blockSize - 1) / blockSize;
-		int blockColumns = (columns + blockSize - 1) / blockSize;
-
-		// Iterate over each block
-		for (int i = 0; i < blockRows; i++) {
-			for (int j = 0; j < blockColumns; j++) {
-				// Calculate the starting and ending indices for the current block
-				int startRow = i * blockSize;
-				int endRow = Math.min(startRow + blockSize, rows);
-				int startColumn = j * blockSize;
-				int endColumn = Math.min(startColumn + blockSize, columns);
-
-				// Create a byte array to store the bytes of the current block
-				byte[] blockBytes = new byte[(endRow - startRow) * (endColumn - startColumn)];
-
-				// Iterate over the elements in the current block and store the bytes
-				int byteIndex = 0;
-				for (int row = startRow; row < endRow; row++) {
-					for (int column = startColumn; column < endColumn; column++) {
-						blockBytes[byteIndex++] = imageArray[row][column];
-					}
-				}
-				blocks.add(blockBytes);
+	/**
+	 * Opens an image file as a stream of tiles, read one band of blockSize rows
+	 * at a time. Only the band being tiled is held in memory, so the memory used
+	 * grows with the width of the image and the block size, not with its height.
+	 * With separate channels, the raster is read once for each channel.
+	 * 
+	 * @param imageFileName the name of the image file to be divided
+	 * @param blockChoice   the strategy choice: 0 for fixing block size, 1 for
+	 *                      fixing the number of blocks
+	 * @param number        the block size if blockChoice is 0, or the number of
+	 *                      blocks if blockChoice is 1
+	 * 
+	 * @return a BlockStream producing the same tiles as blockSeparation
+	 * @throws IOException              if an I/O error occurs while opening the
+	 *                                  file
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1, or a
+	 *                                  band does not fit in an array
+	 */
+	@Override
+	public BlockStream openStream(String imageFileName, int blockChoice, int number) throws IOException {
+		PNMReader image = new PNMReader(imageFileName, false);
+		int blockSize = blockSize(image, blockChoice, number);
+		FileChannel channel = FileChannel.open(Paths.get(imageFileName), StandardOpenOption.READ);
+		return new BandStream(channel, image, separateChannels && image.getChannels() > 1, blockSize,
+				separateChannels ? "channels=separate" : "");
+	}
+
+	/**
+	 * Computes the side of the square tiles of an image.
+	 * 
+	 * @param image       the image, of which only the header is used
+	 * @param blockChoice the strategy choice: 0 for fixing block size, 1 for
+	 *                    fixing the number of blocks
+	 * @param number      the block size if blockChoice is 0, or the number of
+	 *                    blocks if blockChoice is 1
+	 * @return the side of the tiles in pixels
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1
+	 */
+	private int blockSize(PNMReader image, int blockChoice, int number) {
+		int rows = image.getRows();
+		int columns = image.getColumns();
+		int channels = image.getChannels();
+
+		int blockSize = 0;
+		if (blockChoice == 0) { // fixing block size
+			blockSize = (number > rows || number > columns) ? Math.max(rows, columns) : number; // Handle the case
+																								// where the block
+																								// size is bigger
+																								// than the
+																								// dimension
+
+		} else if (blockChoice == 1) { // fixing number of blocks
+			if (separateChannels && channels > 1) { // the blocks are shared among the channels
+				number = Math.max(1, number / channels);
 			}
+			if (number > (long) rows * columns) { // Handle the case where the number of blocks chosen bigger than the
+											// dimension of the image.
+				blockSize = 1;
+			} else {
+				double square = (double) rows * columns / number;
+				double sideDimension = Math.sqrt(square);
+				blockSize = (int) (sideDimension >= Math.floor(sideDimension) + 0.5 ? Math.ceil(sideDimension)
+						: Math.floor(sideDimension));
+			}
+		} else {
+			throw new IllegalArgumentException(
+					"Invalid choice. Choose '0' for fixing block size and '1' for fixing number of blocks.");
 		}
-		return blocks;
+		return blockSize;
 	}
 
 	/**
-	 * Reads an image file, processes its data into a 2D byte array, and outputs the data
-	 * into a byte stream, while also extracting the image dimensions.
-	 * 
-	 * @param fileName     the name of the image file to be read and processed
-	 * @param byteStream   a ByteArrayOutputStream to store the image data in a sequential byte format
-	 * @return a 2D byte array representing the image's pixel values, where each byte 
-	 *         represents a pixel intensity value
-	 * @throws FileNotFoundException if the specified file is not found
-	 * @throws IOException if an I/O error occurs during reading or writing data
+	 * The BandStream class passes the tiles of an image band by band. Each band
+	 * of blockSize rows is read into one reusable buffer, passed to the message
+	 * sink, and cut into the tiles of that band; the tiles are numbered as in
+	 * TiledMessage. ASCII samples are parsed by PNMReader.readNumber, reading the
+	 * file through this stream.
 	 */
-	
-	public static byte[][] processImage(String fileName, ByteArrayOutputStream byteStream)
-			throws FileNotFoundException, IOException {
-
-		try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-
-			// Skip the first four lines
-			reader.readLine();
-			reader.readLine();
-			String[] dims = reader.readLine().split(" "); // Read dimensions line
-			int columns = Integer.parseInt(dims[0]);
-			int rows = Integer.parseInt(dims[1]);
-			reader.readLine();
-
-			// 2D image array
-			byte[][] imageArray = new byte[rows][columns];
-			int row = 0;
-			int col = 0;
-			String line;
-			while ((line = reader.readLine()) != null) {
-				String[] values = line.trim().split(" ");
-				for (String value : values) {
-					byte pixelByte = (byte) Integer.parseInt(value);
-					imageArray[row][col++] = pixelByte;
-					byteStream.write(pixelByte);
-					if (col == columns) {
-						col = 0;
-						row++;
-					}
+	private static class BandStream extends BlockStream implements PNMReader.SampleSource {
+
+		private FileChannel channel;
+		private PNMReader image;
+		private boolean separate;
+		private int blockRows;
+		private int blockColumns;
+		private ChannelReader reader;
+		private ByteBuffer band;
+		private ByteBuffer samples;
+		private int channelPass = -1; // the channel whose tiles are being passed
+		private int loadedBand = -1;
+
+		BandStream(FileChannel channel, PNMReader image, boolean separate, int blockSize, String parameters) {
+			super(blockSize, ((image.getRows() + blockSize - 1) / blockSize)
+					* ((image.getColumns() + blockSize - 1) / blockSize) * (separate ? image.getChannels() : 1),
+					"image", parameters);
+			long bandLength = (long) Math.min(blockSize, image.getRows()) * image.getColumns() * image.getChannels();
+			if (bandLength > Integer.MAX_VALUE - 8) {
+				throw new IllegalArgumentException("Invalid choice. A band of " + blockSize + " rows is too large.");
+			}
+			this.channel = channel;
+			this.image = image;
+			this.separate = separate;
+			this.blockRows = (image.getRows() + blockSize - 1) / blockSize;
+			this.blockColumns = (image.getColumns() + blockSize - 1) / blockSize;
+			this.band = BufferPool.acquire((int) bandLength);
+			this.samples = BufferPool.acquire(Math.min(blockSize, image.getColumns()));
+		}
+
+		@Override
+		protected void readBlock(int index, Consumer<ByteBuffer> action) throws IOException {
+			int blockSize = getBlockSize();
+			int channels = image.getChannels();
+			int columns = image.getColumns();
+			int channel = separate ? index / (blockRows * blockColumns) : 0;
+			int tile = separate ? index % (blockRows * blockColumns) : index;
+			if (channel != channelPass) { // read the raster again from the start
+				channelPass = channel;
+				loadedBand = -1;
+				this.channel.position(image.getRasterOffset());
+				if (reader != null) {
+					reader.release();
+				}
+				reader = new ChannelReader(this.channel);
+			}
+			while (loadedBand < tile / blockColumns) {
+				loadBand();
+			}
+
+			int bandRows = band.limit() / (columns * channels);
+			int startColumn = (tile % blockColumns) * blockSize;
+			int width = Math.min(startColumn + blockSize, columns) - startColumn;
+			for (int row = 0; row < bandRows; row++) {
+				int start = (row * columns + startColumn) * channels;
+				if (!separate) {
+					action.accept(band.slice(start, width * channels).asReadOnlyBuffer());
+					continue;
+				}
+				// Gather the samples of one channel
+				samples.clear();
+				for (int j = start + channel; j < start + width * channels; j += channels) {
+					samples.put(band.get(j));
+				}
+				action.accept(samples.flip().asReadOnlyBuffer());
+			}
+		}
+
+		/**
+		 * Reads the next band of the raster, and passes it to the message sink
+		 * during the first pass.
+		 */
+		private void loadBand() throws IOException {
+			loadedBand++;
+			int bandRows = Math.min(getBlockSize(), image.getRows() - loadedBand * getBlockSize());
+			band.clear().limit(bandRows * image.getColumns() * image.getChannels());
+			while (band.hasRemaining()) {
+				if (!reader.fill()) {
+					throw new IllegalArgumentException("Invalid image: missing pixel values.");
+				}
+				if (image.isBinary()) {
+					ByteBuffer buffer = reader.buffer();
+					int length = Math.min(buffer.remaining(), band.remaining());
+					band.put(band.position(), buffer, buffer.position(), length);
+					band.position(band.position() + length);
+					buffer.position(buffer.position() + length);
+				} else {
+					parseSample();
 				}
 			}
+			band.flip();
+			if (channelPass == 0 && messageSink != null) {
+				messageSink.accept(band.asReadOnlyBuffer());
+			}
+		}
+
+		/**
+		 * Parses the next ASCII sample value into the band.
+		 */
+		private void parseSample() throws IOException {
+			band.put((byte) PNMReader.readNumber(this, image.getMaxValue(), "pixel value"));
+		}
 
-			return imageArray;
+		@Override
+		public int peek() throws IOException {
+			if (!reader.fill()) {
+				return -1;
+			}
+			ByteBuffer buffer = reader.buffer();
+			return buffer.get(buffer.position()) & 0xFF;
+		}
+
+		@Override
+		public void skip() {
+			reader.buffer().get();
+		}
+
+		@Override
+		public boolean isSequential() {
+			return false;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (reader != null) {
+				reader.release();
+			}
+			BufferPool.release(band);
+			BufferPool.release(samples);
+			band = null;
+			samples = null;
+			channel.close();
 		}
 	}
 }
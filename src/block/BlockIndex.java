@@ -0,0 +1,200 @@
+package block;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The BlockIndex class keeps the block offsets of a message in a sidecar file,
+ * so a message that has not changed since signing can be divided into blocks
+ * again without scanning it. The index records the size and the modification
+ * time of the file and a CRC-32C of its first and last SAMPLE bytes; it is
+ * used only while all three still match the file, and only for the same file
+ * type, block size and parameters.
+ *
+ * The index file holds, in order: the MAGIC number, the file size, the
+ * modification time in milliseconds, the checksum, the block size, the number
+ * of blocks n, the length and UTF-8 bytes of the file type and parameters, and
+ * the n + 1 block offsets.
+ */
+
+public class BlockIndex {
+
+	public static final String EXTENSION = ".idx";
+
+	private static final long MAGIC = 0x4D54535349445831L; // "MTSSIDX1"
+	private static final int SAMPLE = 1 << 16;
+
+	/**
+	 * Returns the name of the sidecar index file of a file.
+	 *
+	 * @param fileName the name of the indexed file
+	 * @return the name of its index file
+	 */
+	public static String indexFileName(String fileName) {
+		return fileName + EXTENSION;
+	}
+
+	/**
+	 * Writes the block offsets of a message to an index file.
+	 *
+	 * @param indexFile      the name of the index file to write
+	 * @param fileName       the name of the file the message was read from
+	 * @param blockedMessage the message divided into blocks
+	 * @throws IOException              if an I/O error occurs while writing
+	 * @throws IllegalArgumentException if the blocks of the message are not parts
+	 *                                  of it in order, such as image tiles
+	 */
+	public static void write(String indexFile, String fileName, BlockedMessage blockedMessage) throws IOException {
+		if (!blockedMessage.isSequential()) {
+			throw new IllegalArgumentException("Invalid choice. Only blocks in message order can be indexed.");
+		}
+		Path path = Paths.get(fileName);
+		byte[] key = key(blockedMessage.getFileType(), blockedMessage.getParameters());
+		long[] offsets = blockedMessage.getOffsets();
+
+		ByteBuffer index = ByteBuffer.allocate(Long.BYTES * 3 + Integer.BYTES * 4 + key.length
+				+ Long.BYTES * offsets.length);
+		index.putLong(MAGIC);
+		index.putLong(Files.size(path));
+		index.putLong(Files.getLastModifiedTime(path).toMillis());
+		index.putInt(checksum(blockedMessage.message));
+		index.putInt(blockedMessage.getBlockSize());
+		index.putInt(blockedMessage.getNumberOfBlocks());
+		index.putInt(key.length);
+		index.put(key);
+		index.asLongBuffer().put(offsets);
+		index.position(index.capacity()).flip();
+
+		try (FileChannel channel = FileChannel.open(Paths.get(indexFile), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			while (index.hasRemaining()) {
+				channel.write(index);
+			}
+		}
+	}
+
+	/**
+	 * Divides a file into blocks at the offsets of its index file, without
+	 * scanning the file. The index is memory-mapped.
+	 *
+	 * @param indexFile  the name of the index file
+	 * @param fileName   the name of the file to be divided
+	 * @param fileType   the file type the blocks must have
+	 * @param blockSize  the block size the blocks must have
+	 * @param parameters the parameters the blocks must have
+	 * @return a BlockedMessage divided at the indexed offsets, or null if there is
+	 *         no index, or it does not match the file or the blocks
+	 */
+	public static BlockedMessage open(String indexFile, String fileName, String fileType, int blockSize,
+			String parameters) {
+		Path indexPath = Paths.get(indexFile);
+		Path path = Paths.get(fileName);
+		if (!Files.isRegularFile(indexPath)) {
+			return null;
+		}
+		try (FileChannel indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+			ByteBuffer index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+			byte[] key = key(fileType, parameters);
+			if (index.remaining() < Long.BYTES * 3 + Integer.BYTES * 4 || index.getLong() != MAGIC
+					|| index.getLong() != Files.size(path)
+					|| index.getLong() != Files.getLastModifiedTime(path).toMillis()) {
+				return null;
+			}
+			int checksum = index.getInt();
+			int numberOfBlocks;
+			if (index.getInt() != blockSize || (numberOfBlocks = index.getInt()) < 0
+					|| index.getInt() != key.length || index.remaining() != key.length
+							+ Long.BYTES * ((long) numberOfBlocks + 1)) {
+				return null;
+			}
+			byte[] indexKey = new byte[key.length];
+			index.get(indexKey);
+			if (!Arrays.equals(key, indexKey)) {
+				return null;
+			}
+			long[] offsets = new long[numberOfBlocks + 1];
+			index.asLongBuffer().get(offsets);
+
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				LargeBuffer message = LargeBuffer.map(channel);
+				if (checksum(message) != checksum || !validOffsets(offsets, message.size())) {
+					return null;
+				}
+				return new BlockedMessage(message, offsets, blockSize, fileType, parameters);
+			}
+		} catch (IOException e) {
+			return null; // divide the file again
+		}
+	}
+
+	/**
+	 * Checks that offsets run from the start to the end of a message in order.
+	 *
+	 * @param offsets the block offsets
+	 * @param size    the size of the message
+	 * @return true if the offsets are valid; false otherwise
+	 */
+	private static boolean validOffsets(long[] offsets, long size) {
+		if (offsets[0] != 0 || offsets[offsets.length - 1] != size) {
+			return false;
+		}
+		for (int i = 1; i < offsets.length; i++) {
+			if (offsets[i] < offsets[i - 1]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Computes the CRC-32C of the first and the last SAMPLE bytes of a message.
+	 *
+	 * @param message the message
+	 * @return the checksum
+	 */
+	private static int checksum(LargeBuffer message) {
+		CRC32C crc = new CRC32C();
+		long size = message.size();
+		message.forEachSegment(0, Math.min(SAMPLE, size), crc::update);
+		long tail = Math.max(Math.min(SAMPLE, size), size - SAMPLE);
+		message.forEachSegment(tail, size - tail, crc::update);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Encodes the file type and parameters the blocks are indexed for.
+	 */
+	private static byte[] key(String fileType, String parameters) {
+		return (fileType + "\n" + parameters).getBytes(StandardCharsets.UTF_8);
+	}
+
+}
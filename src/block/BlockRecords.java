@@ -0,0 +1,186 @@
+package block;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The BlockRecords class implements the Blockfy interface for CSV and
+ * JSON-lines files, grouping a fixed number of records per block. Unlike
+ * BlockFile, which counts lines, it finds the record boundaries with a
+ * RecordScanner, so a quoted field or string holding newlines is never split
+ * across blocks. The blocks make up the file in order.
+ *
+ * @field fileType The format of the records: "csv" or "jsonl".
+ */
+
+public class BlockRecords implements Blockfy, StreamingBlockfy {
+
+	private String fileType;
+	private boolean inflate;
+
+	// Constructor
+	public BlockRecords(String fileType) {
+		this(fileType, false);
+	}
+
+	// Constructor: inflates a gzip-compressed file as it is read if inflate is true
+	public BlockRecords(String fileType, boolean inflate) {
+		if (!fileType.equalsIgnoreCase("csv") && !fileType.equalsIgnoreCase("jsonl")) {
+			throw new IllegalArgumentException("Invalid choice. Either csv or jsonl");
+		}
+		this.fileType = fileType.toLowerCase();
+		this.inflate = inflate;
+	}
+
+	/**
+	 * Divides a CSV or JSON-lines file into blocks of records. The file is
+	 * memory-mapped and scanned once for the block boundaries, or twice when the
+	 * number of blocks is fixed, since the records must be counted first.
+	 * 
+	 * @param fileName    the name of the file to be divided
+	 * @param blockChoice the strategy choice: 0 for fixing the number of records
+	 *                    per block, 1 for fixing the number of blocks
+	 * @param number      the number of records per block if blockChoice is 0, or
+	 *                    the number of blocks if blockChoice is 1
+	 * 
+	 * @return a BlockedMessage object containing the blocks over the mapped file
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1, or the
+	 *                                  file is to be inflated
+	 */
+	@Override
+	public BlockedMessage blockSeparation(String fileName, int blockChoice, int number) {
+		try {
+			LargeBuffer message = GzipInput.map(fileName, inflate);
+			int blockSize = 0;
+			if (blockChoice == 1) {
+				RecordScanner counter = new RecordScanner(isJson(), 0);
+				scan(counter, message);
+				blockSize = blockSize(counter.getRecords(message.size()), number);
+			} else {
+				blockSize = blockSize(blockChoice, number);
+			}
+			RecordScanner scanner = new RecordScanner(isJson(), blockSize);
+			scan(scanner, message);
+			return new BlockedMessage(message, scanner.getOffsets(message.size()), blockSize, fileType);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Opens a CSV or JSON-lines file as a stream of blocks of records. The number
+	 * of blocks is needed before the first block, so the file is read once to
+	 * find the block boundaries, keeping only the offsets, and once more as the
+	 * blocks are passed (or three times when the number of blocks is fixed).
+	 * 
+	 * @param fileName    the name of the file to be divided
+	 * @param blockChoice the strategy choice: 0 for fixing the number of records
+	 *                    per block, 1 for fixing the number of blocks
+	 * @param number      the number of records per block if blockChoice is 0, or
+	 *                    the number of blocks if blockChoice is 1
+	 * 
+	 * @return a BlockStream producing the same blocks as blockSeparation
+	 * @throws IOException              if an I/O error occurs while reading the
+	 *                                  file
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1
+	 */
+	@Override
+	public BlockStream openStream(String fileName, int blockChoice, int number) throws IOException {
+		int blockSize = 0;
+		if (blockChoice == 1) {
+			RecordScanner counter = new RecordScanner(isJson(), 0);
+			long size = scan(counter, fileName);
+			blockSize = blockSize(counter.getRecords(size), number);
+		} else {
+			blockSize = blockSize(blockChoice, number);
+		}
+		RecordScanner scanner = new RecordScanner(isJson(), blockSize);
+		long size = scan(scanner, fileName);
+
+		ChannelReader reader = new ChannelReader(GzipInput.open(fileName, inflate));
+		return new OffsetStream(reader, scanner.getOffsets(size), blockSize, fileType, GzipInput.parameters(inflate));
+	}
+
+	/**
+	 * Feeds a mapped file to a scanner, region by region.
+	 */
+	private static void scan(RecordScanner scanner, LargeBuffer message) {
+		for (int r = 0; r < message.getRegionCount(); r++) {
+			scanner.scan(message.getRegion(r), message.getRegionOffset(r));
+		}
+	}
+
+	/**
+	 * Feeds a file to a scanner, one chunk at a time.
+	 *
+	 * @return the size of the file
+	 */
+	private long scan(RecordScanner scanner, String fileName) throws IOException {
+		long offset = 0;
+		try (ChannelReader reader = new ChannelReader(GzipInput.open(fileName, inflate))) {
+			while (reader.fill()) {
+				ByteBuffer buffer = reader.buffer();
+				scanner.scan(buffer, offset);
+				offset += buffer.limit();
+				buffer.position(buffer.limit());
+			}
+		}
+		return offset;
+	}
+
+	/**
+	 * Returns the number of records per block when fixing the block size.
+	 *
+	 * @throws IllegalArgumentException if blockChoice is not 0, or number is not
+	 *                                  positive
+	 */
+	private static int blockSize(int blockChoice, int number) {
+		if (blockChoice != 0) {
+			throw new IllegalArgumentException(
+					"Invalid choice. Choose '0' for fixing block size and '1' for fixing number of blocks.");
+		}
+		if (number < 1) {
+			throw new IllegalArgumentException("The block size or number of blocks must be positive.");
+		}
+		return number;
+	}
+
+	/**
+	 * Returns the number of records per block when fixing the number of blocks.
+	 *
+	 * @throws IllegalArgumentException if number is not positive
+	 */
+	private static int blockSize(long records, int number) {
+		if (number < 1) {
+			throw new IllegalArgumentException("The block size or number of blocks must be positive.");
+		}
+		return (int) Math.min(Integer.MAX_VALUE, Math.max(1, (records + number - 1) / number)); // round up
+	}
+
+	private boolean isJson() {
+		return fileType.equals("jsonl");
+	}
+
+}
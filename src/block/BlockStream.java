@@ -0,0 +1,181 @@
+package block;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The BlockStream class produces the blocks of a message lazily, in order, as
+ * a Spliterator whose size (the number of blocks) is known before the first
+ * block is read. Blocks are read as they are passed, so a stream can be hashed
+ * with memory bounded by its read buffer instead of the message size.
+ *
+ * When the blocks do not make up the message in order (see isSequential), the
+ * stream passes the bytes of the message to the message sink, if one is set,
+ * before it reports that no blocks remain.
+ *
+ * @field blockSize The size of each block, as for BlockedMessage.
+ * @field numberOfBlocks The total number of blocks.
+ * @field fileType The type of file the message represents.
+ * @field parameters The block separation parameters, as for BlockedMessage.
+ * @field nextBlock The index of the next block to pass.
+ * @field messageSink The action receiving the bytes of the message, or null.
+ */
+
+public abstract class BlockStream implements Spliterator<Block>, Closeable {
+
+	private int blockSize;
+	private int numberOfBlocks;
+	private String fileType;
+	private String parameters;
+	protected int nextBlock;
+	protected Consumer<ByteBuffer> messageSink;
+
+	// Constructor
+	protected BlockStream(int blockSize, int numberOfBlocks, String fileType, String parameters) {
+		this.blockSize = blockSize;
+		this.numberOfBlocks = numberOfBlocks;
+		this.fileType = fileType;
+		this.parameters = parameters;
+	}
+
+	/**
+	 * Reads the next block, passing its bytes to an action as one or more views.
+	 *
+	 * @param index  the index of the block
+	 * @param action the action receiving each view
+	 * @throws IOException if an I/O error occurs while reading the block
+	 */
+	protected abstract void readBlock(int index, Consumer<ByteBuffer> action) throws IOException;
+
+	/**
+	 * Passes the next block to an action. A block the action does not read is
+	 * skipped.
+	 *
+	 * @param action the action receiving the block
+	 * @return false if no blocks remain, true otherwise
+	 */
+	@Override
+	public boolean tryAdvance(Consumer<? super Block> action) {
+		if (nextBlock == numberOfBlocks) {
+			return false;
+		}
+		int index = nextBlock++;
+		boolean[] read = { false };
+		Block block = new Block() {
+			@Override
+			public int getIndex() {
+				return index;
+			}
+
+			@Override
+			public void forEachSegment(Consumer<ByteBuffer> segmentAction) {
+				if (read[0]) {
+					throw new IllegalStateException("Block " + index + " has already been read.");
+				}
+				read[0] = true;
+				try {
+					readBlock(index, segmentAction);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		};
+		action.accept(block);
+		if (!read[0]) {
+			block.forEachSegment(segment -> {
+			});
+		}
+		return true;
+	}
+
+	@Override
+	public Spliterator<Block> trySplit() {
+		return null; // blocks are read in order
+	}
+
+	@Override
+	public long estimateSize() {
+		return numberOfBlocks - nextBlock;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | SIZED | SUBSIZED | NONNULL;
+	}
+
+	/**
+	 * Checks whether the blocks, taken in order, make up the original message.
+	 *
+	 * @return true if concatenating the blocks gives the original message
+	 */
+	public boolean isSequential() {
+		return true;
+	}
+
+	/**
+	 * Sets the action receiving the bytes of the message, in order, when the
+	 * stream is not sequential.
+	 *
+	 * @param messageSink the action receiving each view of the message
+	 */
+	public void setMessageSink(Consumer<ByteBuffer> messageSink) {
+		this.messageSink = messageSink;
+	}
+
+	@Override
+	public void close() throws IOException {
+	}
+
+	// getter methods
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public int getNumberOfBlocks() {
+		return numberOfBlocks;
+	}
+
+	public String getFileType() {
+		return fileType;
+	}
+
+	public String getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * Returns the message whose blocks this stream passes, when they can also be
+	 * read in any order, and more than once, from it.
+	 *
+	 * @return the BlockedMessage, or null if the blocks can only be read once
+	 */
+	public BlockedMessage getBlockedMessage() {
+		return null;
+	}
+
+}
@@ -0,0 +1,141 @@
+package block;
+
+import java.io.IOException;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The BlockTar class implements the Blockfy interface for tar archives, so a
+ * modified member can be located without extracting the archive. Each block
+ * holds a fixed number of members, each with its headers, payload and padding;
+ * the last block also holds the end-of-archive records, so the blocks make up
+ * the archive in order. The member boundaries are found by TarReader from the
+ * headers alone, after which the archive is read once, sequentially.
+ */
+
+public class BlockTar implements Blockfy, StreamingBlockfy {
+
+	private boolean inflate;
+
+	// Constructor: reads the archive as it is stored
+	public BlockTar() {
+	}
+
+	// Constructor: inflates a gzip-compressed archive as it is read if inflate is
+	// true
+	public BlockTar(boolean inflate) {
+		this.inflate = inflate;
+	}
+
+	/**
+	 * Divides a tar archive into blocks of members.
+	 * 
+	 * @param fileName    the name of the archive to be divided
+	 * @param blockChoice the strategy choice: 0 for fixing the number of members
+	 *                    per block, 1 for fixing the number of blocks
+	 * @param number      the number of members per block if blockChoice is 0, or
+	 *                    the number of blocks if blockChoice is 1
+	 * 
+	 * @return a BlockedMessage object containing the blocks over the mapped
+	 *         archive, with file type "tar"
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1, the file
+	 *                                  is not a tar archive, or it is to be
+	 *                                  inflated
+	 */
+	@Override
+	public BlockedMessage blockSeparation(String fileName, int blockChoice, int number) {
+		try {
+			LargeBuffer message = GzipInput.map(fileName, inflate);
+			TarReader archive = new TarReader(fileName, false);
+			int blockSize = blockSize(archive, blockChoice, number);
+			return new BlockedMessage(message, memberOffsets(archive, blockSize, message.size()), blockSize, "tar");
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Opens a tar archive as a stream of blocks of members. The headers are read
+	 * first, seeking over the payloads, and the archive is then read once in
+	 * large sequential chunks as the blocks are passed.
+	 * 
+	 * @param fileName    the name of the archive to be divided
+	 * @param blockChoice the strategy choice: 0 for fixing the number of members
+	 *                    per block, 1 for fixing the number of blocks
+	 * @param number      the number of members per block if blockChoice is 0, or
+	 *                    the number of blocks if blockChoice is 1
+	 * 
+	 * @return a BlockStream producing the same blocks as blockSeparation
+	 * @throws IOException              if an I/O error occurs while reading the
+	 *                                  archive
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1, or the
+	 *                                  file is not a tar archive
+	 */
+	@Override
+	public BlockStream openStream(String fileName, int blockChoice, int number) throws IOException {
+		TarReader archive = new TarReader(fileName, inflate);
+		int blockSize = blockSize(archive, blockChoice, number);
+		return new OffsetStream(new ChannelReader(GzipInput.open(fileName, inflate)),
+				memberOffsets(archive, blockSize, archive.getSize()), blockSize, "tar", GzipInput.parameters(inflate));
+	}
+
+	/**
+	 * Computes the number of members per block.
+	 *
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1, or
+	 *                                  number is not positive
+	 */
+	private static int blockSize(TarReader archive, int blockChoice, int number) {
+		if (number < 1) {
+			throw new IllegalArgumentException("The block size or number of blocks must be positive.");
+		}
+		if (blockChoice == 0) { // fixing block size
+			return number;
+		} else if (blockChoice == 1) { // fixing number of blocks
+			return Math.max(1, (archive.getMembers() + number - 1) / number); // round up the block size
+		} else {
+			throw new IllegalArgumentException(
+					"Invalid choice. Choose '0' for fixing block size and '1' for fixing number of blocks.");
+		}
+	}
+
+	/**
+	 * Computes the offsets of the blocks: each block starts with the first header
+	 * of its first member, and the last block ends with the archive.
+	 *
+	 * @param archive   the layout of the archive
+	 * @param blockSize the number of members per block
+	 * @param size      the size of the archive
+	 * @return the offsets of the blocks
+	 */
+	private static long[] memberOffsets(TarReader archive, int blockSize, long size) {
+		int numberOfBlocks = (archive.getMembers() + blockSize - 1) / blockSize;
+		long[] offsets = new long[numberOfBlocks + 1];
+		for (int j = 1; j < numberOfBlocks; j++) {
+			offsets[j] = archive.getStart(j * blockSize);
+		}
+		offsets[numberOfBlocks] = size;
+		return offsets;
+	}
+
+}
@@ -0,0 +1,340 @@
+package block;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The BlockVideo class implements the Blockfy interface for uncompressed Y4M
+ * videos, so that modified frames can be located. The blocks are either groups
+ * of whole frames, or tiles of every frame:
+ * 
+ * - with frames, the block size is the number of frames per block, and each
+ * block spans its frames with their header lines (the first block also holds
+ * the stream header), so the blocks make up the file in order;
+ * - with tiles, the block size is the side of the square tiles in luma pixels,
+ * and each block holds the Y samples of a tile followed by the U and V samples
+ * of the same area; the tiles of frame f follow those of frame f - 1.
+ * 
+ * The geometry of the video is recorded in the block separation parameters.
+ * The video can also be read as a stream, one frame at a time.
+ *
+ * @field tiles Whether the blocks are tiles of the frames rather than frames.
+ */
+
+public class BlockVideo implements Blockfy, StreamingBlockfy {
+
+	private boolean tiles;
+
+	// Constructor
+	public BlockVideo() {
+		this(false);
+	}
+
+	// Constructor: choosing between frames and tiles of frames
+	public BlockVideo(boolean tiles) {
+		this.tiles = tiles;
+	}
+
+	/**
+	 * Divides a Y4M video into blocks of frames or tiles.
+	 * 
+	 * @param videoFileName the name of the video file to be divided
+	 * @param blockChoice   the strategy choice: 0 for fixing block size, 1 for
+	 *                      fixing the number of blocks
+	 * @param number        the number of frames per block or the side of the
+	 *                      tiles if blockChoice is 0, or the number of blocks if
+	 *                      blockChoice is 1
+	 * 
+	 * @return a BlockedMessage object containing the blocks over the mapped file,
+	 *         with file type "video"
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1
+	 */
+	@Override
+	public BlockedMessage blockSeparation(String videoFileName, int blockChoice, int number) {
+		try (FileChannel channel = FileChannel.open(Paths.get(videoFileName), StandardOpenOption.READ)) {
+			Y4MReader video = new Y4MReader(videoFileName);
+			LargeBuffer message = LargeBuffer.map(channel);
+			if (tiles) {
+				int side = tileSide(video, blockChoice, number);
+				return new VideoTiles(message, video, side, parameters(video));
+			}
+			int blockSize = BlockBinary.blockSize(video.getFrames(), blockChoice, number);
+			return new BlockedMessage(message, frameOffsets(video, blockSize), blockSize, "video", parameters(video));
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Opens a Y4M video as a stream of blocks of frames or tiles. Only the frame
+	 * being tiled is held in memory.
+	 * 
+	 * @param videoFileName the name of the video file to be divided
+	 * @param blockChoice   the strategy choice: 0 for fixing block size, 1 for
+	 *                      fixing the number of blocks
+	 * @param number        the number of frames per block or the side of the
+	 *                      tiles if blockChoice is 0, or the number of blocks if
+	 *                      blockChoice is 1
+	 * 
+	 * @return a BlockStream producing the same blocks as blockSeparation
+	 * @throws IOException              if an I/O error occurs while opening the
+	 *                                  file
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1
+	 */
+	@Override
+	public BlockStream openStream(String videoFileName, int blockChoice, int number) throws IOException {
+		Y4MReader video = new Y4MReader(videoFileName);
+		ChannelReader reader = new ChannelReader(
+				FileChannel.open(Paths.get(videoFileName), StandardOpenOption.READ));
+		if (tiles) {
+			int side = tileSide(video, blockChoice, number);
+			return new TileStream(reader, video, side, parameters(video));
+		}
+		int blockSize = BlockBinary.blockSize(video.getFrames(), blockChoice, number);
+		return new OffsetStream(reader, frameOffsets(video, blockSize), blockSize, "video", parameters(video));
+	}
+
+	/**
+	 * Computes the offsets of blocks of whole frames.
+	 * 
+	 * @param video     the layout of the video
+	 * @param blockSize the number of frames per block
+	 * @return the offsets of the blocks in the file
+	 */
+	private static long[] frameOffsets(Y4MReader video, int blockSize) {
+		int frames = video.getFrames();
+		int numberOfBlocks = (frames + blockSize - 1) / blockSize;
+		long[] offsets = new long[numberOfBlocks + 1];
+		for (int k = 1; k <= numberOfBlocks; k++) { // the first block starts with the stream header
+			offsets[k] = video.getFrameStart(Math.min(k * blockSize, frames));
+		}
+		return offsets;
+	}
+
+	/**
+	 * Computes the side of the tiles in luma pixels, as a multiple of the chroma
+	 * subsampling so that every plane is tiled on the same grid.
+	 * 
+	 * @param video       the layout of the video
+	 * @param blockChoice the strategy choice: 0 for fixing block size, 1 for
+	 *                    fixing the number of blocks
+	 * @param number      the side of the tiles if blockChoice is 0, or the number
+	 *                    of blocks if blockChoice is 1
+	 * @return the side of the tiles
+	 * @throws IllegalArgumentException if blockChoice is neither 0 nor 1, or if
+	 *                                  there are too many tiles
+	 */
+	private static int tileSide(Y4MReader video, int blockChoice, int number) {
+		int rows = video.getRows();
+		int columns = video.getColumns();
+		if (number < 1) {
+			throw new IllegalArgumentException("The block size or number of blocks must be positive.");
+		}
+		int side;
+		if (blockChoice == 0) { // fixing block size
+			side = Math.min(number, Math.max(rows, columns));
+		} else if (blockChoice == 1) { // fixing number of blocks, shared among the frames
+			int perFrame = Math.max(1, number / Math.max(1, video.getFrames()));
+			side = (int) Math.max(1, Math.round(Math.sqrt((double) rows * columns / perFrame)));
+		} else {
+			throw new IllegalArgumentException(
+					"Invalid choice. Choose '0' for fixing block size and '1' for fixing number of blocks.");
+		}
+		int step = Math.max(video.getSubsamplingX(), video.getSubsamplingY());
+		side = (side + step - 1) / step * step;
+
+		long numberOfBlocks = (long) tilesPerFrame(video, side) * video.getFrames();
+		if (numberOfBlocks > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many tiles. Choose a larger block size.");
+		}
+		return side;
+	}
+
+	private static int tilesPerFrame(Y4MReader video, int side) {
+		return ((video.getRows() + side - 1) / side) * ((video.getColumns() + side - 1) / side);
+	}
+
+	/**
+	 * Records the geometry of the video and how it is divided.
+	 */
+	private String parameters(Y4MReader video) {
+		return "blocks=" + (tiles ? "tiles" : "frames") + ",frames=" + video.getFrames() + ",width="
+				+ video.getColumns() + ",height=" + video.getRows() + ",chroma=" + video.getChroma();
+	}
+
+	/**
+	 * Passes the rows of a tile of a frame to an action, plane by plane, as
+	 * offsets within the samples of the frame.
+	 * 
+	 * @param video  the layout of the video
+	 * @param side   the side of the tiles in luma pixels
+	 * @param tile   the index of the tile within the frame
+	 * @param action the action receiving the offset and the length of each row
+	 */
+	private static void forEachTileRow(Y4MReader video, int side, int tile, RowAction action) {
+		int tileColumns = (video.getColumns() + side - 1) / side;
+		for (int plane = 0; plane < video.getPlanes(); plane++) {
+			int sideX = plane == 0 ? side : side / video.getSubsamplingX();
+			int sideY = plane == 0 ? side : side / video.getSubsamplingY();
+			int planeColumns = video.getPlaneColumns(plane);
+			int startRow = (tile / tileColumns) * sideY;
+			int endRow = Math.min(startRow + sideY, video.getPlaneRows(plane));
+			int startColumn = (tile % tileColumns) * sideX;
+			int width = Math.min(startColumn + sideX, planeColumns) - startColumn;
+			for (int row = startRow; row < endRow; row++) {
+				action.accept(video.getPlaneOffset(plane) + (long) row * planeColumns + startColumn, width);
+			}
+		}
+	}
+
+	/**
+	 * The RowAction interface receives the rows of a tile.
+	 */
+	private interface RowAction {
+		void accept(long offset, int length);
+	}
+
+	/**
+	 * The VideoTiles class is a BlockedMessage over the mapped video whose blocks
+	 * are the tiles of every frame.
+	 */
+	private static class VideoTiles extends BlockedMessage {
+
+		private Y4MReader video;
+		private int tilesPerFrame;
+
+		VideoTiles(LargeBuffer message, Y4MReader video, int side, String parameters) {
+			super(message, side, tilesPerFrame(video, side) * video.getFrames(), "video", parameters);
+			this.video = video;
+			this.tilesPerFrame = tilesPerFrame(video, side);
+		}
+
+		@Override
+		public void forEachSegment(int i, Consumer<ByteBuffer> action) {
+			long dataStart = video.getDataStart(i / tilesPerFrame);
+			forEachTileRow(video, getBlockSize(), i % tilesPerFrame,
+					(offset, length) -> message.forEachSegment(dataStart + offset, length, action));
+		}
+
+		@Override
+		public long getBlockLength(int i) {
+			long[] length = { 0 };
+			forEachTileRow(video, getBlockSize(), i % tilesPerFrame, (offset, rowLength) -> length[0] += rowLength);
+			return length[0];
+		}
+
+		@Override
+		public boolean isSequential() {
+			return false;
+		}
+	}
+
+	/**
+	 * The TileStream class passes the tiles of a video frame by frame. Each frame
+	 * is read with its header line into one reusable buffer, passed to the
+	 * message sink, and cut into its tiles.
+	 */
+	private static class TileStream extends BlockStream {
+
+		private ChannelReader reader;
+		private Y4MReader video;
+		private int tilesPerFrame;
+		private ByteBuffer frame;
+		private int loadedFrame = -1;
+
+		TileStream(ChannelReader reader, Y4MReader video, int side, String parameters) {
+			super(side, tilesPerFrame(video, side) * video.getFrames(), "video", parameters);
+			this.reader = reader;
+			this.video = video;
+			this.tilesPerFrame = tilesPerFrame(video, side);
+			long largest = 0;
+			for (int f = 0; f < video.getFrames(); f++) {
+				largest = Math.max(largest, video.getFrameStart(f + 1) - regionStart(f));
+			}
+			if (largest > Integer.MAX_VALUE - 8) {
+				throw new IllegalArgumentException("Unsupported video: frames larger than 2 GB.");
+			}
+			this.frame = BufferPool.acquire((int) largest);
+		}
+
+		/**
+		 * Returns the offset where the bytes read with frame f start: the start of
+		 * the file for the first frame, so the stream header reaches the sink.
+		 */
+		private long regionStart(int f) {
+			return f == 0 ? 0 : video.getFrameStart(f);
+		}
+
+		@Override
+		protected void readBlock(int index, Consumer<ByteBuffer> action) throws IOException {
+			int f = index / tilesPerFrame;
+			while (loadedFrame < f) {
+				loadFrame();
+			}
+			int dataStart = (int) (video.getDataStart(f) - regionStart(f));
+			forEachTileRow(video, getBlockSize(), index % tilesPerFrame, (offset, length) -> action
+					.accept(frame.slice(dataStart + (int) offset, length).asReadOnlyBuffer()));
+		}
+
+		/**
+		 * Reads the next frame, and passes it to the message sink.
+		 */
+		private void loadFrame() throws IOException {
+			loadedFrame++;
+			frame.clear().limit((int) (video.getFrameStart(loadedFrame + 1) - regionStart(loadedFrame)));
+			while (frame.hasRemaining()) {
+				if (!reader.fill()) {
+					throw new IllegalArgumentException("Invalid video: frame " + loadedFrame + " is truncated.");
+				}
+				ByteBuffer buffer = reader.buffer();
+				int length = Math.min(buffer.remaining(), frame.remaining());
+				frame.put(frame.position(), buffer, buffer.position(), length);
+				frame.position(frame.position() + length);
+				buffer.position(buffer.position() + length);
+			}
+			frame.flip();
+			if (messageSink != null) {
+				messageSink.accept(frame.asReadOnlyBuffer());
+			}
+		}
+
+		@Override
+		public boolean isSequential() {
+			return false;
+		}
+
+		@Override
+		public void close() throws IOException {
+			BufferPool.release(frame);
+			frame = null;
+			reader.close();
+		}
+	}
+
+}
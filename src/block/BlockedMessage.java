@@ -1,6 +1,9 @@
 package block;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Copyright 2024, Dongxia (Mico) Luo
@@ -26,35 +29,182 @@ import java.util.List;
 /**
  * This class encapsulates the properties of a message divided into blocks,
  * including the block size, the number of blocks, the original message, and the
- * file type.
+ * file type. The message is held once, in a read-only buffer, and the blocks
+ * are read-only views over it. Offsets are long, so the message may be larger
+ * than 2 GB.
  *
- * @field blocks A list of byte arrays, each representing a block of the
- *        message.
- * @field blockSize The size of each block in bytes.
+ * @field message The original message as a read-only buffer.
+ * @field offsets The offsets of the blocks in the message; block i spans
+ *        offsets[i] to offsets[i + 1].
+ * @field blockSize The size of each block (in lines for text, in pixels for
+ *        the side of an image tile).
  * @field numberOfBlocks The total number of blocks.
- * @field message The original message in byte array format.
  * @field fileType The type of file the message represents (e.g., text, image).
+ * @field parameters The parameters needed to divide the message the same way
+ *        again, as comma-separated key=value pairs (empty if there are none).
  */
 
 public class BlockedMessage {
 
-	private List<byte[]> blocks;
+	protected LargeBuffer message;
+	private long[] offsets;
 	private int blockSize;
 	private int numberOfBlocks;
-	private byte[] message;
 	private String fileType;
+	private String parameters = "";
 
 	// Constructor
-	public BlockedMessage(List<byte[]> blocks, int blockSize, int numberOfBlocks, byte[] message, String fileType) {
-		this.blocks = blocks;
+	public BlockedMessage(LargeBuffer message, long[] offsets, int blockSize, String fileType) {
+		this(message, blockSize, offsets.length - 1, fileType);
+		this.offsets = offsets;
+	}
+
+	// Constructor: with block separation parameters
+	public BlockedMessage(LargeBuffer message, long[] offsets, int blockSize, String fileType, String parameters) {
+		this(message, offsets, blockSize, fileType);
+		this.parameters = parameters;
+	}
+
+	// Constructor: for subclasses that lay out the blocks themselves
+	protected BlockedMessage(LargeBuffer message, int blockSize, int numberOfBlocks, String fileType) {
+		this.message = message.asReadOnly();
 		this.blockSize = blockSize;
 		this.numberOfBlocks = numberOfBlocks;
-		this.message = message;
 		this.fileType = fileType;
 	}
 
+	// Constructor: for subclasses, with block separation parameters
+	protected BlockedMessage(LargeBuffer message, int blockSize, int numberOfBlocks, String fileType,
+			String parameters) {
+		this(message, blockSize, numberOfBlocks, fileType);
+		this.parameters = parameters;
+	}
+
+	/**
+	 * Passes the bytes of block i to an action, as one or more read-only views in
+	 * order, without copying them. A block that is contiguous in the message is
+	 * passed as a single view, unless it crosses regions of the message.
+	 *
+	 * @param i      the index of the block
+	 * @param action the action receiving each view
+	 */
+	public void forEachSegment(int i, Consumer<ByteBuffer> action) {
+		message.forEachSegment(offsets[i], offsets[i + 1] - offsets[i], action);
+	}
+
+	/**
+	 * Returns the number of bytes in block i.
+	 *
+	 * @param i the index of the block
+	 * @return the length of block i in bytes
+	 */
+	public long getBlockLength(int i) {
+		return offsets[i + 1] - offsets[i];
+	}
+
+	/**
+	 * Passes the original message to an action, as one read-only view per region,
+	 * in order, without copying it.
+	 *
+	 * @param action the action receiving each view
+	 */
+	public void forEachMessageSegment(Consumer<ByteBuffer> action) {
+		message.forEachSegment(0, message.size(), action);
+	}
+
+	/**
+	 * Returns the number of bytes in the original message.
+	 *
+	 * @return the length of the message in bytes
+	 */
+	public long getMessageLength() {
+		return message.size();
+	}
+
+	/**
+	 * Checks whether the blocks, taken in order, make up the original message.
+	 *
+	 * @return true if concatenating the blocks gives the original message
+	 */
+	public boolean isSequential() {
+		return true;
+	}
+
+	/**
+	 * Returns a stream passing the blocks of this message in order. When the
+	 * message is not sequential, the stream passes the whole message to its
+	 * message sink before the first block.
+	 *
+	 * @return a BlockStream over the blocks of this message
+	 */
+	public BlockStream stream() {
+		BlockedMessage blockedMessage = this;
+		return new BlockStream(blockSize, numberOfBlocks, fileType, parameters) {
+			private boolean messagePassed;
+
+			@Override
+			public boolean tryAdvance(Consumer<? super Block> action) {
+				if (!messagePassed && messageSink != null && !isSequential()) {
+					forEachMessageSegment(messageSink);
+				}
+				messagePassed = true;
+				return super.tryAdvance(action);
+			}
+
+			@Override
+			protected void readBlock(int index, Consumer<ByteBuffer> action) {
+				blockedMessage.forEachSegment(index, action);
+			}
+
+			@Override
+			public boolean isSequential() {
+				return blockedMessage.isSequential();
+			}
+
+			@Override
+			public BlockedMessage getBlockedMessage() {
+				return blockedMessage;
+			}
+		};
+	}
+
+	/**
+	 * Returns a copy of block i.
+	 *
+	 * @param i the index of the block
+	 * @return a byte array holding the bytes of block i
+	 */
+	public byte[] getBlockBytes(int i) {
+		byte[] blockBytes = new byte[arrayLength(getBlockLength(i))];
+		int[] position = new int[1];
+		forEachSegment(i, segment -> {
+			int length = segment.remaining();
+			segment.get(blockBytes, position[0], length);
+			position[0] += length;
+		});
+		return blockBytes;
+	}
+
+	/**
+	 * Checks that a number of bytes fits in a byte array.
+	 *
+	 * @param length the number of bytes
+	 * @return the number of bytes as an int
+	 * @throws IllegalStateException if the bytes do not fit in an array
+	 */
+	private static int arrayLength(long length) {
+		if (length > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Too large to copy into an array: " + length + " bytes.");
+		}
+		return (int) length;
+	}
+
 	// getter methods
-	public List<byte[]> getBlocks() {
+	public List<byte[]> getBlocks() { // copies every block
+		List<byte[]> blocks = new ArrayList<>();
+		for (int i = 0; i < numberOfBlocks; i++) {
+			blocks.add(getBlockBytes(i));
+		}
 		return blocks;
 	}
 
@@ -66,12 +216,27 @@ public class BlockedMessage {
 		return numberOfBlocks;
 	}
 
-	public byte[] getMessage() {
-		return message;
+	long[] getOffsets() { // for BlockIndex, not copied
+		return offsets;
+	}
+
+	public byte[] getMessage() { // copies the message
+		byte[] messageBytes = new byte[arrayLength(getMessageLength())];
+		int[] position = new int[1];
+		forEachMessageSegment(segment -> {
+			int length = segment.remaining();
+			segment.get(messageBytes, position[0], length);
+			position[0] += length;
+		});
+		return messageBytes;
 	}
 
 	public String getFileType() {
 		return fileType;
 	}
 
+	public String getParameters() {
+		return parameters;
+	}
+
 }
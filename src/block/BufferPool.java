@@ -0,0 +1,114 @@
+package block;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The BufferPool class keeps heap buffers for reuse, so that signing many files
+ * in a row reaches a steady state where the chunk, band and frame buffers of
+ * each file are those released by the files before it, rather than new ones
+ * for the collector to reclaim. Buffers come in size classes of powers of two,
+ * from MIN_SIZE to MAX_SIZE bytes; larger buffers are allocated and dropped as
+ * usual. Each class keeps at most RETAINED bytes of free buffers (and at least
+ * one buffer), so an occasional large file does not pin its memory for good.
+ *
+ * A buffer must be released once, by the code that acquired it, after which
+ * neither it nor any view of it may be used.
+ */
+
+public final class BufferPool {
+
+	private static final int MIN_SHIFT = 12;
+	private static final int MAX_SHIFT = 26;
+	private static final int MIN_SIZE = 1 << MIN_SHIFT;
+	private static final int MAX_SIZE = 1 << MAX_SHIFT;
+
+	private static final long RETAINED = 1L << 26;
+	private static final int MAX_BUFFERS = 64;
+
+	private static final ArrayBlockingQueue<ByteBuffer>[] FREE = freeLists();
+
+	private BufferPool() {
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ArrayBlockingQueue<ByteBuffer>[] freeLists() {
+		ArrayBlockingQueue<ByteBuffer>[] free = (ArrayBlockingQueue<ByteBuffer>[]) new ArrayBlockingQueue<?>[MAX_SHIFT
+				- MIN_SHIFT + 1];
+		for (int c = 0; c < free.length; c++) {
+			int buffers = (int) Math.max(1, Math.min(MAX_BUFFERS, RETAINED >>> (MIN_SHIFT + c)));
+			free[c] = new ArrayBlockingQueue<>(buffers);
+		}
+		return free;
+	}
+
+	/**
+	 * Returns a heap buffer of at least the given capacity, reused if one is free.
+	 *
+	 * @param capacity the number of bytes needed
+	 * @return a buffer with its position at zero, its limit at capacity and
+	 *         big-endian order; its contents are undefined
+	 */
+	public static ByteBuffer acquire(int capacity) {
+		if (capacity > MAX_SIZE) {
+			return ByteBuffer.allocate(capacity);
+		}
+		int c = sizeClass(capacity);
+		ByteBuffer buffer = FREE[c].poll();
+		if (buffer == null) {
+			buffer = ByteBuffer.allocate(1 << (MIN_SHIFT + c));
+		}
+		buffer.clear().limit(capacity);
+		return buffer.order(ByteOrder.BIG_ENDIAN);
+	}
+
+	/**
+	 * Returns a buffer to the pool. Buffers that were not acquired from the pool,
+	 * or that do not fit its size classes, are left to the collector.
+	 *
+	 * @param buffer the buffer to release, or null
+	 */
+	public static void release(ByteBuffer buffer) {
+		if (buffer == null || !buffer.hasArray() || buffer.arrayOffset() != 0) {
+			return;
+		}
+		int capacity = buffer.capacity();
+		if (capacity < MIN_SIZE || capacity > MAX_SIZE || Integer.bitCount(capacity) != 1
+				|| buffer.array().length != capacity) {
+			return;
+		}
+		FREE[sizeClass(capacity)].offer(buffer); // dropped if the class is full
+	}
+
+	/**
+	 * Returns the size class holding buffers of a capacity: the smallest power of
+	 * two, no less than MIN_SIZE, that is at least the capacity.
+	 */
+	private static int sizeClass(int capacity) {
+		int shift = 32 - Integer.numberOfLeadingZeros(Math.max(capacity, MIN_SIZE) - 1);
+		return shift - MIN_SHIFT;
+	}
+
+}
@@ -0,0 +1,124 @@
+package block;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The CDCCheck class checks the block sizes BlockCDC derives from the block
+ * choice: a block size or number of blocks below 1 is rejected, a block size
+ * too large for eight times it to fit in an int is clamped, and every division
+ * ends and covers the file with blocks no larger than the maximum size. Run it
+ * with:
+ *
+ *    java -cp bcprov-jdk18on-177.jar:./ block.CDCCheck
+ *
+ * It prints each failure, and exits with status 1 if there is any.
+ *
+ * @field failures The number of failures found.
+ */
+
+public final class CDCCheck {
+
+	private static final int FILE_SIZE = 1 << 20;
+
+	private static int failures;
+
+	private CDCCheck() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		Path file = Files.createTempFile("cdc", ".bin");
+		try {
+			byte[] content = new byte[FILE_SIZE];
+			new Random(1).nextBytes(content);
+			Files.write(file, content);
+			String fileName = file.toString();
+
+			checkRejected(fileName, 0, 0);
+			checkRejected(fileName, 0, -1);
+			checkRejected(fileName, 1, 0);
+			checkRejected(fileName, 1, -1);
+
+			int clamped = Integer.MAX_VALUE / 8;
+			check("-z " + Integer.MAX_VALUE, fileName, 0, Integer.MAX_VALUE,
+					"min=" + clamped / 4 + ",avg=" + clamped + ",max=" + clamped * 8);
+			check("-z " + (clamped + 1), fileName, 0, clamped + 1,
+					"min=" + clamped / 4 + ",avg=" + clamped + ",max=" + clamped * 8);
+			check("-z 1", fileName, 0, 1, "min=1,avg=1,max=8");
+			check("-z 4096", fileName, 0, 4096, "min=1024,avg=4096,max=32768");
+			check("-b 1", fileName, 1, 1, "min=262144,avg=1048576,max=8388608");
+			check("-b " + FILE_SIZE, fileName, 1, FILE_SIZE, "min=16,avg=64,max=512");
+		} finally {
+			Files.delete(file);
+		}
+		if (failures > 0) {
+			System.out.println(failures + " failures.");
+			System.exit(1);
+		}
+		System.out.println("All divisions are valid.");
+	}
+
+	/**
+	 * Checks that a block choice is rejected.
+	 */
+	private static void checkRejected(String fileName, int blockChoice, int number) {
+		try {
+			new BlockCDC().blockSeparation(fileName, blockChoice, number);
+			fail("blockChoice " + blockChoice + ", number " + number + ": not rejected");
+		} catch (IllegalArgumentException e) {
+			// Rejected, as expected
+		}
+	}
+
+	/**
+	 * Checks the chunk sizes derived from a block choice, and that the blocks
+	 * cover the file in order, none larger than the maximum size.
+	 */
+	private static void check(String name, String fileName, int blockChoice, int number, String parameters) {
+		BlockedMessage blockedMessage = new BlockCDC().blockSeparation(fileName, blockChoice, number);
+		if (!blockedMessage.getParameters().equals(parameters)) {
+			fail(name + ": expected " + parameters + ", got " + blockedMessage.getParameters());
+		}
+		int max = Integer.parseInt(parameters.substring(parameters.lastIndexOf('=') + 1));
+		long[] offsets = blockedMessage.getOffsets();
+		if (offsets[0] != 0 || offsets[offsets.length - 1] != FILE_SIZE) {
+			fail(name + ": the blocks span " + offsets[0] + " to " + offsets[offsets.length - 1]);
+		}
+		for (int i = 0; i + 1 < offsets.length; i++) {
+			if (offsets[i + 1] <= offsets[i] || offsets[i + 1] - offsets[i] > max) {
+				fail(name + ": block " + i + " spans " + Arrays.toString(Arrays.copyOfRange(offsets, i, i + 2)));
+				return;
+			}
+		}
+	}
+
+	private static void fail(String message) {
+		System.out.println("Failure: " + message);
+		failures++;
+	}
+
+}
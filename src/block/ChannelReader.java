@@ -0,0 +1,97 @@
+package block;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The ChannelReader class reads a channel sequentially through one reusable
+ * buffer, one full chunk at a time, so reads from a file start at multiples of
+ * the chunk size. The buffer uses little-endian order for word-at-a-time scans;
+ * it comes from the BufferPool and goes back to it when the reader is closed.
+ *
+ * @field channel The channel being read.
+ * @field buffer The unread bytes, from its position to its limit.
+ */
+
+class ChannelReader implements Closeable {
+
+	static final int CHUNK_SIZE = 1 << 20;
+
+	private ReadableByteChannel channel;
+	private ByteBuffer buffer;
+
+	// Constructor
+	ChannelReader(ReadableByteChannel channel) {
+		this.channel = channel;
+		this.buffer = BufferPool.acquire(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		this.buffer.limit(0);
+	}
+
+	/**
+	 * Makes sure unread bytes are available, reading the next chunk once the
+	 * buffer is used up.
+	 *
+	 * @return false at the end of the channel, true otherwise
+	 * @throws IOException if an I/O error occurs while reading
+	 */
+	boolean fill() throws IOException {
+		if (buffer.hasRemaining()) {
+			return true;
+		}
+		buffer.clear();
+		while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+			// Read a full chunk unless the channel ends
+		}
+		buffer.flip();
+		return buffer.hasRemaining();
+	}
+
+	/**
+	 * Returns the buffer; the unread bytes run from its position to its limit.
+	 *
+	 * @return the buffer of this reader
+	 */
+	ByteBuffer buffer() {
+		return buffer;
+	}
+
+	/**
+	 * Returns the buffer to the pool without closing the channel, once the
+	 * reader is no longer used.
+	 */
+	void release() {
+		BufferPool.release(buffer);
+		buffer = null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		release();
+		channel.close();
+	}
+
+}
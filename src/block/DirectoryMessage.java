@@ -0,0 +1,57 @@
+package block;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The DirectoryMessage class is a BlockedMessage over the file records of a
+ * directory tree, as built by BlockDirectory. It keeps the relative paths of the
+ * files, so a modified block can be named by the files it holds.
+ *
+ * @field files The relative paths of the files, in the order of their records.
+ */
+
+public class DirectoryMessage extends BlockedMessage {
+
+	private String[] files;
+
+	// Constructor
+	DirectoryMessage(LargeBuffer message, long[] offsets, int blockSize, String[] files) {
+		super(message, offsets, blockSize, "directory");
+		this.files = files;
+	}
+
+	/**
+	 * Returns the files whose records make up block i.
+	 *
+	 * @param i the index of the block
+	 * @return the relative paths of the files of block i, in order
+	 */
+	public List<String> getFiles(int i) {
+		int from = (int) Math.min((long) i * getBlockSize(), files.length);
+		int to = Math.min(from + getBlockSize(), files.length);
+		return Arrays.asList(files).subList(from, to);
+	}
+
+}
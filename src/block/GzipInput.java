@@ -0,0 +1,150 @@
+package block;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The GzipInput class opens the files to be divided. A gzip-compressed file is
+ * inflated on the fly only when asked to, with the "gzip=on" parameter, so it
+ * is signed and verified by its content rather than by its compressed bytes,
+ * without a temporary file; concatenated gzip members are read as one content.
+ * Otherwise every file is read as the bytes it holds, compressed or not.
+ *
+ * Compressed content is only read as a stream: it cannot be mapped or read out
+ * of order, so the streaming blockifiers read it once more for every pass they
+ * make over the file, and it is never held whole in memory.
+ */
+
+public class GzipInput {
+
+	private static final String PARAMETER = "gzip=on"; // recorded in the signature of an inflated file
+	private static final int MAGIC = 0x8B1F; // the first two bytes, little-endian
+
+	private GzipInput() {
+	}
+
+	/**
+	 * Checks whether a file is gzip-compressed.
+	 *
+	 * @param fileName the name of the file
+	 * @return true if the file starts with the gzip magic number, false otherwise
+	 *         or if the file cannot be read
+	 */
+	public static boolean isGzip(String fileName) {
+		try (InputStream in = Files.newInputStream(Paths.get(fileName))) {
+			return (in.read() | in.read() << 8) == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Opens the content of a file for sequential reading.
+	 *
+	 * @param fileName the name of the file
+	 * @param inflate  whether the file is inflated as it is read
+	 * @return a channel over the inflated content of the file, or over the file
+	 *         itself
+	 * @throws IOException              if an I/O error occurs while opening the
+	 *                                  file
+	 * @throws IllegalArgumentException if the file is to be inflated but is not
+	 *                                  gzip-compressed
+	 */
+	static ReadableByteChannel open(String fileName, boolean inflate) throws IOException {
+		Path path = Paths.get(fileName);
+		if (!inflate) {
+			return FileChannel.open(path, StandardOpenOption.READ);
+		}
+		if (!isGzip(fileName)) {
+			throw new IllegalArgumentException("Invalid choice. The file " + fileName + " is not gzip-compressed.");
+		}
+		return Channels.newChannel(new GZIPInputStream(Files.newInputStream(path), ChannelReader.CHUNK_SIZE));
+	}
+
+	/**
+	 * Returns the size of the content of a file. A file to be inflated is read
+	 * once to count its bytes, as the size in the gzip trailer is only kept
+	 * modulo 4 GB and covers the last member alone.
+	 *
+	 * @param fileName the name of the file
+	 * @param inflate  whether the file is inflated as it is read
+	 * @return the size of the content in bytes
+	 * @throws IOException if an I/O error occurs while reading the file
+	 */
+	public static long size(String fileName, boolean inflate) throws IOException {
+		if (!inflate) {
+			return Files.size(Paths.get(fileName));
+		}
+		long size = 0;
+		try (ChannelReader reader = new ChannelReader(open(fileName, true))) {
+			while (reader.fill()) {
+				ByteBuffer buffer = reader.buffer();
+				size += buffer.remaining();
+				buffer.position(buffer.limit());
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Memory-maps a file for random access, as the bytes it holds.
+	 *
+	 * @param fileName the name of the file
+	 * @param inflate  whether the file was to be inflated
+	 * @return the content of the file
+	 * @throws IOException              if an I/O error occurs while reading the
+	 *                                  file
+	 * @throws IllegalArgumentException if the file was to be inflated, as
+	 *                                  compressed files are only read as streams
+	 */
+	static LargeBuffer map(String fileName, boolean inflate) throws IOException {
+		if (inflate) {
+			throw new IllegalArgumentException("Invalid choice. Compressed files are only read as streams.");
+		}
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			return LargeBuffer.map(channel);
+		}
+	}
+
+	/**
+	 * Returns the parameters of the blocks of a file, so that the signature
+	 * records whether it was inflated.
+	 *
+	 * @param inflate whether the file is inflated as it is read
+	 * @return "gzip=on" if the file is inflated, or an empty string
+	 */
+	static String parameters(boolean inflate) {
+		return inflate ? PARAMETER : "";
+	}
+
+}
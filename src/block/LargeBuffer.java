@@ -0,0 +1,198 @@
+package block;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.Consumer;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The LargeBuffer class holds a sequence of bytes that may be longer than a
+ * single ByteBuffer (2 GB), as consecutive regions addressed by long offsets.
+ * Every region but the last holds exactly 2^shift bytes, so the region of an
+ * offset is found with a shift. Files are memory-mapped one region at a time.
+ *
+ * @field regions The consecutive regions of the bytes.
+ * @field shift The base-2 logarithm of the size of a full region.
+ * @field size The total number of bytes.
+ */
+
+public class LargeBuffer {
+
+	private static final int REGION_SHIFT = 30; // 1 GB regions
+
+	private ByteBuffer[] regions;
+	private int shift;
+	private long size;
+
+	// Constructor
+	private LargeBuffer(ByteBuffer[] regions, int shift, long size) {
+		this.regions = regions;
+		this.shift = shift;
+		this.size = size;
+	}
+
+	/**
+	 * Memory-maps a whole file, read-only.
+	 *
+	 * @param channel the channel of the file
+	 * @return the mapped bytes of the file
+	 * @throws IOException if an I/O error occurs while mapping
+	 */
+	public static LargeBuffer map(FileChannel channel) throws IOException {
+		return map(channel, 0, channel.size());
+	}
+
+	/**
+	 * Memory-maps part of a file, read-only.
+	 *
+	 * @param channel  the channel of the file
+	 * @param position the offset in the file of the first byte to map
+	 * @param size     the number of bytes to map
+	 * @return the mapped bytes
+	 * @throws IOException if an I/O error occurs while mapping
+	 */
+	public static LargeBuffer map(FileChannel channel, long position, long size) throws IOException {
+		int count = (int) Math.max(1, (size + (1L << REGION_SHIFT) - 1) >>> REGION_SHIFT);
+		ByteBuffer[] regions = new ByteBuffer[count];
+		for (int r = 0; r < count; r++) {
+			long offset = (long) r << REGION_SHIFT;
+			regions[r] = channel.map(FileChannel.MapMode.READ_ONLY, position + offset,
+					Math.min(1L << REGION_SHIFT, size - offset));
+		}
+		return new LargeBuffer(regions, REGION_SHIFT, size);
+	}
+
+	/**
+	 * Allocates zeroed bytes on the heap, one array per region.
+	 *
+	 * @param size the number of bytes
+	 * @return the allocated, writable bytes
+	 */
+	public static LargeBuffer allocate(long size) {
+		int count = (int) Math.max(1, (size + (1L << REGION_SHIFT) - 1) >>> REGION_SHIFT);
+		ByteBuffer[] regions = new ByteBuffer[count];
+		for (int r = 0; r < count; r++) {
+			long offset = (long) r << REGION_SHIFT;
+			regions[r] = ByteBuffer.allocate((int) Math.min(1L << REGION_SHIFT, size - offset));
+		}
+		return new LargeBuffer(regions, REGION_SHIFT, size);
+	}
+
+	/**
+	 * Wraps a single buffer, from its position to its limit.
+	 *
+	 * @param buffer the buffer to wrap
+	 * @return the bytes of the buffer
+	 */
+	public static LargeBuffer wrap(ByteBuffer buffer) {
+		return new LargeBuffer(new ByteBuffer[] { buffer.slice() }, 31, buffer.remaining());
+	}
+
+	/**
+	 * Returns a read-only view of these bytes.
+	 *
+	 * @return a LargeBuffer sharing the same bytes, which cannot be modified
+	 *         through it
+	 */
+	public LargeBuffer asReadOnly() {
+		ByteBuffer[] readOnly = new ByteBuffer[regions.length];
+		for (int r = 0; r < regions.length; r++) {
+			readOnly[r] = regions[r].isReadOnly() ? regions[r] : regions[r].asReadOnlyBuffer();
+		}
+		return new LargeBuffer(readOnly, shift, size);
+	}
+
+	/**
+	 * Passes the bytes from offset to offset + length to an action, as one view
+	 * per region they cross, in order, without copying them.
+	 *
+	 * @param offset the offset of the first byte
+	 * @param length the number of bytes
+	 * @param action the action receiving each view
+	 */
+	public void forEachSegment(long offset, long length, Consumer<ByteBuffer> action) {
+		long end = offset + length;
+		while (offset < end) {
+			int r = (int) (offset >>> shift);
+			int start = (int) (offset - ((long) r << shift));
+			int count = (int) Math.min(regions[r].limit() - start, end - offset);
+			action.accept(regions[r].slice(start, count));
+			offset += count;
+		}
+	}
+
+	/**
+	 * Returns the byte at an offset.
+	 *
+	 * @param offset the offset of the byte
+	 * @return the byte at that offset
+	 */
+	public byte get(long offset) {
+		return regions[(int) (offset >>> shift)].get((int) (offset & ((1L << shift) - 1)));
+	}
+
+	/**
+	 * Writes a byte at an offset.
+	 *
+	 * @param offset the offset of the byte
+	 * @param value  the byte to write
+	 */
+	public void put(long offset, byte value) {
+		regions[(int) (offset >>> shift)].put((int) (offset & ((1L << shift) - 1)), value);
+	}
+
+	/**
+	 * Returns the number of regions.
+	 *
+	 * @return the number of regions
+	 */
+	public int getRegionCount() {
+		return regions.length;
+	}
+
+	/**
+	 * Returns region r, with its position at zero.
+	 *
+	 * @param r the index of the region
+	 * @return a view of region r
+	 */
+	public ByteBuffer getRegion(int r) {
+		return regions[r].duplicate();
+	}
+
+	/**
+	 * Returns the offset of the first byte of region r.
+	 *
+	 * @param r the index of the region
+	 * @return the offset of region r
+	 */
+	public long getRegionOffset(int r) {
+		return (long) r << shift;
+	}
+
+	public long size() {
+		return size;
+	}
+
+}
@@ -0,0 +1,234 @@
+package block;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The LineIndex class indexes the newlines of a text message in parallel. The
+ * message is split into segments that are scanned on the fork/join pool: a
+ * first pass counts the newlines of every segment, and the prefix sums of the
+ * counts tell each segment which of its newlines end a block, so a second
+ * pass places the block boundaries of all segments independently.
+ *
+ * @field message The message being indexed.
+ * @field segments The segments of the message, each within one region.
+ * @field starts The offset of each segment in the message.
+ * @field linesBefore The number of newlines before each segment, with the total
+ *        number of newlines last.
+ */
+
+class LineIndex {
+
+	static final int SEGMENT_SIZE = 8 << 20;
+
+	private LargeBuffer message;
+	private List<ByteBuffer> segments;
+	private long[] starts;
+	private long[] linesBefore;
+
+	// Constructor
+	private LineIndex(LargeBuffer message, List<ByteBuffer> segments, long[] starts, long[] linesBefore) {
+		this.message = message;
+		this.segments = segments;
+		this.starts = starts;
+		this.linesBefore = linesBefore;
+	}
+
+	/**
+	 * Splits a message into segments and counts the newlines of every segment in
+	 * parallel.
+	 *
+	 * @param message the message to index
+	 * @return the index of the message
+	 */
+	static LineIndex build(LargeBuffer message) {
+		List<ByteBuffer> segments = new ArrayList<>();
+		List<Long> startList = new ArrayList<>();
+		for (int r = 0; r < message.getRegionCount(); r++) {
+			ByteBuffer region = message.getRegion(r);
+			long base = message.getRegionOffset(r);
+			for (int start = 0; start < region.limit(); start += SEGMENT_SIZE) {
+				int length = Math.min(SEGMENT_SIZE, region.limit() - start);
+				segments.add(region.slice(start, length).order(ByteOrder.LITTLE_ENDIAN));
+				startList.add(base + start);
+			}
+		}
+
+		int count = segments.size();
+		long[] starts = new long[count];
+		long[] linesBefore = new long[count + 1];
+		for (int s = 0; s < count; s++) {
+			starts[s] = startList.get(s);
+		}
+
+		// First pass: count the newlines of every segment
+		long[] counts = new long[count];
+		ForkJoinPool.commonPool().invoke(new SegmentTask(0, count, s -> {
+			counts[s] = BlockFile.countNewlines(segments.get(s));
+		}));
+
+		// Prefix sums of the counts
+		for (int s = 0; s < count; s++) {
+			linesBefore[s + 1] = linesBefore[s] + counts[s];
+		}
+		return new LineIndex(message, segments, starts, linesBefore);
+	}
+
+	/**
+	 * Returns the number of newlines in the message.
+	 *
+	 * @return the number of newlines
+	 */
+	long getNewlines() {
+		return linesBefore[segments.size()];
+	}
+
+	/**
+	 * Returns the number of lines in the message, counting a last line without a
+	 * newline.
+	 *
+	 * @return the number of lines
+	 */
+	long getTotalLines() {
+		long length = message.size();
+		if (length > 0 && message.get(length - 1) != 10) {
+			return getNewlines() + 1;
+		}
+		return getNewlines();
+	}
+
+	/**
+	 * Places the block boundaries for blocks of a number of lines, scanning the
+	 * segments in parallel. Each block ends after every blockSize-th newline, and
+	 * the remaining lines form a last block.
+	 *
+	 * @param blockSize the size of each block in lines
+	 * @return the offsets of the blocks in the message, where block i spans
+	 *         offsets[i] to offsets[i + 1]
+	 * @throws IllegalStateException if there are more than Integer.MAX_VALUE - 1
+	 *                               blocks
+	 */
+	long[] blockOffsets(int blockSize) {
+		long length = message.size();
+		long fullBlocks = getNewlines() / blockSize;
+		// Remaining lines that don't fill a complete block
+		boolean remainder = getNewlines() % blockSize != 0 || getTotalLines() > getNewlines();
+		long numberOfBlocks = fullBlocks + (remainder ? 1 : 0);
+		if (numberOfBlocks >= Integer.MAX_VALUE - 1) {
+			throw new IllegalStateException("Too many blocks: " + numberOfBlocks);
+		}
+		long[] offsets = new long[(int) numberOfBlocks + 1];
+		offsets[(int) numberOfBlocks] = length;
+
+		// Second pass: the boundaries of every segment go to their own slots
+		ForkJoinPool.commonPool().invoke(new SegmentTask(0, segments.size(), s -> {
+			long before = linesBefore[s];
+			long first = blockSize - before % blockSize; // newline in s that ends a block
+			if (first <= linesBefore[s + 1] - before) {
+				placeBoundaries(segments.get(s), starts[s], first, blockSize, offsets,
+						(int) (before / blockSize) + 1);
+			}
+		}));
+		return offsets;
+	}
+
+	/**
+	 * Records the offset after every blockSize-th newline of a segment, eight
+	 * bytes at a time.
+	 *
+	 * @param segment   the little-endian segment to scan
+	 * @param start     the offset of the segment in the message
+	 * @param first     the number of the first newline in the segment that ends a
+	 *                  block, counting from 1
+	 * @param blockSize the size of each block in lines
+	 * @param offsets   the offsets of the blocks
+	 * @param slot      the slot of offsets for the first boundary in the segment
+	 */
+	private static void placeBoundaries(ByteBuffer segment, long start, long first, int blockSize, long[] offsets,
+			int slot) {
+		int limit = segment.limit();
+		long seen = 0;
+		long next = first;
+
+		int i = 0;
+		for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+			long matches = BlockFile.newlines(segment.getLong(i));
+			int count = Long.bitCount(matches);
+			while (seen + count >= next) {
+				for (long k = next - seen; k > 1; k--) {
+					matches &= matches - 1; // Clear the lowest newline
+				}
+				offsets[slot++] = start + i + (Long.numberOfTrailingZeros(matches) >>> 3) + 1;
+				matches &= matches - 1;
+				count -= (int) (next - seen);
+				seen = next;
+				next += blockSize;
+			}
+			seen += count;
+		}
+		for (; i < limit; i++) {
+			if (segment.get(i) == 10 && ++seen == next) { // Check for newline character
+				offsets[slot++] = start + i + 1;
+				next += blockSize;
+			}
+		}
+	}
+
+	/**
+	 * The SegmentTask class runs an action on a range of segments, splitting the
+	 * range in halves down to single segments.
+	 */
+	private static class SegmentTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private int from;
+		private int to;
+		private IntConsumer action;
+
+		SegmentTask(int from, int to, IntConsumer action) {
+			this.from = from;
+			this.to = to;
+			this.action = action;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= 1) {
+				for (int s = from; s < to; s++) {
+					action.accept(s);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new SegmentTask(from, middle, action), new SegmentTask(middle, to, action));
+		}
+	}
+
+}
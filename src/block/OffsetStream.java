@@ -0,0 +1,68 @@
+package block;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The OffsetStream class passes blocks that are consecutive parts of a file,
+ * between offsets found beforehand, reading the file once from the start
+ * through a ChannelReader.
+ *
+ * @field reader The reader of the file.
+ * @field offsets The offsets of the blocks; block i spans offsets[i] to
+ *        offsets[i + 1].
+ */
+
+class OffsetStream extends BlockStream {
+
+	private ChannelReader reader;
+	private long[] offsets;
+
+	// Constructor
+	OffsetStream(ChannelReader reader, long[] offsets, int blockSize, String fileType, String parameters) {
+		super(blockSize, offsets.length - 1, fileType, parameters);
+		this.reader = reader;
+		this.offsets = offsets;
+	}
+
+	@Override
+	protected void readBlock(int index, Consumer<ByteBuffer> action) throws IOException {
+		long remaining = offsets[index + 1] - offsets[index];
+		while (remaining > 0 && reader.fill()) {
+			ByteBuffer buffer = reader.buffer();
+			int start = buffer.position();
+			int length = (int) Math.min(buffer.remaining(), remaining);
+			action.accept(buffer.slice(start, length).asReadOnlyBuffer());
+			buffer.position(start + length);
+			remaining -= length;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+}
@@ -0,0 +1,268 @@
+package block;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The PNMReader class reads greyscale (PGM) and colour (PPM) Netpbm images,
+ * either ASCII (P2, P3) or binary (P5, P6), into a raster holding one byte per
+ * sample, row by row, with the red, green and blue samples of a colour pixel
+ * interleaved. The file is memory-mapped: a binary raster is used in place,
+ * without copying, and an ASCII raster is parsed byte by byte, without
+ * allocating per sample. The numbers of the header and of an ASCII raster are
+ * read by readNumber, which the streamed tiles of BlockImage use as well.
+ *
+ * @field magic The magic number of the image ("P2", "P3", "P5" or "P6").
+ * @field columns The width of the image in pixels.
+ * @field rows The height of the image in pixels.
+ * @field channels The number of samples per pixel: 1 for greyscale, 3 for
+ *        colour.
+ * @field maxValue The maximum sample value.
+ * @field rasterOffset The offset of the raster in the file.
+ * @field raster The sample values, row by row (null if only the header was
+ *        read).
+ */
+
+public class PNMReader {
+
+	private String magic;
+	private int columns;
+	private int rows;
+	private int channels;
+	private int maxValue;
+	private long rasterOffset;
+	private LargeBuffer raster;
+
+	// Constructor: reads the image
+	public PNMReader(String fileName) throws IOException {
+		this(fileName, true);
+	}
+
+	// Constructor: reads the header, and the raster only if readRaster is true
+	public PNMReader(String fileName, boolean readRaster) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			LargeBuffer file = LargeBuffer.map(channel);
+			readHeader(file);
+			long samples = (long) rows * columns * channels;
+			if (!readRaster) {
+				return;
+			}
+			if (isBinary()) {
+				raster = LargeBuffer.map(channel, rasterOffset, samples);
+			} else {
+				raster = parseRaster(file, rasterOffset, samples);
+			}
+		}
+	}
+
+	/**
+	 * Reads the header of the image: the magic number, the width, the height and
+	 * the maximum sample value, skipping whitespace and comments.
+	 *
+	 * @param file the image file
+	 * @throws IOException              never, as the file is mapped
+	 * @throws IllegalArgumentException if the file is not a P2, P3, P5 or P6
+	 *                                  image, a field is missing, not a number or
+	 *                                  zero, or the maximum value is above 255
+	 */
+	private void readHeader(LargeBuffer file) throws IOException {
+		byte type = file.size() < 2 || file.get(0) != 'P' ? 0 : file.get(1);
+		if (type != '2' && type != '3' && type != '5' && type != '6') {
+			throw new IllegalArgumentException("Invalid image. Either P2 or P5 PGM, or P3 or P6 PPM.");
+		}
+		magic = "P" + (char) type;
+		channels = (type == '3' || type == '6') ? 3 : 1;
+
+		MappedSource source = new MappedSource(file, 2);
+		columns = readNumber(source, Integer.MAX_VALUE, "width");
+		rows = readNumber(source, Integer.MAX_VALUE, "height");
+		// samples are held in one byte, so larger values would be truncated
+		maxValue = readNumber(source, 255, "maximum value");
+		if (columns == 0 || rows == 0 || maxValue == 0) {
+			throw new IllegalArgumentException("Invalid image: the width, height and maximum value must be positive.");
+		}
+		rasterOffset = source.position + 1; // a single whitespace ends the header
+	}
+
+	/**
+	 * Reads the next decimal number of the header or of an ASCII raster, skipping
+	 * whitespace and comments before it. The number must end with whitespace, a
+	 * comment or the end of the file.
+	 *
+	 * @param source   the bytes of the image, moved past the number
+	 * @param maxValue the largest value allowed
+	 * @param field    what the number is, for the error messages
+	 * @return the number read
+	 * @throws IOException              if an I/O error occurs while reading
+	 * @throws IllegalArgumentException if the number is missing, is not a decimal
+	 *                                  number, or is above maxValue
+	 */
+	static int readNumber(SampleSource source, int maxValue, String field) throws IOException {
+		int b;
+		while ((b = source.peek()) != -1) {
+			if (b == '#') {
+				while ((b = source.peek()) != -1 && b != '\n') {
+					source.skip();
+				}
+			} else if (isWhitespace(b)) {
+				source.skip();
+			} else {
+				break;
+			}
+		}
+		if (b == -1) {
+			throw new IllegalArgumentException("Invalid image: missing " + field + ".");
+		}
+		long value = 0;
+		int digits = 0;
+		while ((b = source.peek()) != -1 && isDigit((byte) b)) {
+			value = value * 10 + (b - '0');
+			if (value > maxValue) {
+				throw new IllegalArgumentException("Invalid image: " + field + " above " + maxValue + ".");
+			}
+			source.skip();
+			digits++;
+		}
+		if (digits == 0 || (b != -1 && b != '#' && !isWhitespace(b))) {
+			throw new IllegalArgumentException("Invalid image: " + field + " is not a number.");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Parses the sample values of an ASCII raster, one byte per sample.
+	 *
+	 * @param file    the image file
+	 * @param offset  the offset of the first sample value
+	 * @param samples the number of samples
+	 * @return the sample values, row by row
+	 * @throws IOException              never, as the file is mapped
+	 * @throws IllegalArgumentException if a sample value is missing, is not a
+	 *                                  number, or is above the maximum value
+	 */
+	private LargeBuffer parseRaster(LargeBuffer file, long offset, long samples) throws IOException {
+		LargeBuffer values = LargeBuffer.allocate(samples);
+		MappedSource source = new MappedSource(file, offset);
+		for (long sample = 0; sample < samples; sample++) {
+			values.put(sample, (byte) readNumber(source, maxValue, "pixel value"));
+		}
+		return values;
+	}
+
+	/**
+	 * Checks whether the raster holds binary samples (P5, P6) rather than ASCII
+	 * numbers (P2, P3).
+	 *
+	 * @return true for a binary raster; false otherwise
+	 */
+	public boolean isBinary() {
+		return magic.equals("P5") || magic.equals("P6");
+	}
+
+	static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	private static boolean isWhitespace(int b) {
+		return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+	}
+
+	// getter methods
+	public String getMagic() {
+		return magic;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getChannels() {
+		return channels;
+	}
+
+	public int getMaxValue() {
+		return maxValue;
+	}
+
+	public long getRasterOffset() {
+		return rasterOffset;
+	}
+
+	public LargeBuffer getRaster() {
+		return raster;
+	}
+
+	/**
+	 * The SampleSource interface passes the bytes of an image one at a time to
+	 * readNumber, from a mapped file or from a stream.
+	 */
+	interface SampleSource {
+
+		/**
+		 * Returns the next byte without reading it.
+		 *
+		 * @return the byte, or -1 at the end of the file
+		 * @throws IOException if an I/O error occurs while reading
+		 */
+		int peek() throws IOException;
+
+		/**
+		 * Reads the next byte, which peek returned.
+		 *
+		 * @throws IOException if an I/O error occurs while reading
+		 */
+		void skip() throws IOException;
+	}
+
+	/**
+	 * The MappedSource class reads the bytes of a mapped image file.
+	 */
+	private static class MappedSource implements SampleSource {
+
+		private LargeBuffer file;
+		private long position;
+
+		MappedSource(LargeBuffer file, long position) {
+			this.file = file;
+			this.position = position;
+		}
+
+		@Override
+		public int peek() {
+			return position < file.size() ? file.get(position) & 0xFF : -1;
+		}
+
+		@Override
+		public void skip() {
+			position++;
+		}
+	}
+
+}
@@ -0,0 +1,158 @@
+package block;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The RecordScanner class finds the ends of the records of a CSV or JSON-lines
+ * file with a small state machine, fed one chunk at a time in file order. A
+ * record ends at a newline outside of a quoted CSV field or a JSON string, so
+ * quoted newlines stay inside their record. Only newlines, quotes and, for
+ * JSON, backslashes can change the state; words of eight bytes holding none of
+ * them are skipped at once.
+ *
+ * @field json Whether the records are JSON lines rather than CSV rows.
+ * @field recordsPerBlock The number of records per block, or 0 to only count
+ *        the records.
+ * @field quoted Whether the scan is inside a quoted field or a string.
+ * @field escaped The offset of the byte escaped by a backslash, or -1.
+ * @field records The number of records ended so far.
+ * @field end The offset after the last record ended so far.
+ * @field offsets The block boundaries found so far.
+ * @field numberOfBlocks The number of complete blocks so far.
+ */
+
+class RecordScanner {
+
+	private static final long QUOTES = 0x2222222222222222L;
+	private static final long BACKSLASHES = 0x5C5C5C5C5C5C5C5CL;
+	private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+
+	private boolean json;
+	private int recordsPerBlock;
+	private boolean quoted;
+	private long escaped = -1;
+	private long records;
+	private long end;
+	private long[] offsets = new long[16];
+	private int numberOfBlocks;
+
+	// Constructor
+	RecordScanner(boolean json, int recordsPerBlock) {
+		this.json = json;
+		this.recordsPerBlock = recordsPerBlock;
+	}
+
+	/**
+	 * Scans the next chunk of the file.
+	 *
+	 * @param chunk the bytes of the chunk, from position zero to the limit
+	 * @param base  the offset of the chunk in the file
+	 */
+	void scan(ByteBuffer chunk, long base) {
+		ByteBuffer words = chunk.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int limit = words.limit();
+
+		int i = 0;
+		for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+			long word = words.getLong(i);
+			long special = BlockFile.matches(word, NEWLINES) | BlockFile.matches(word, QUOTES)
+					| (json ? BlockFile.matches(word, BACKSLASHES) : 0);
+			while (special != 0) {
+				int k = Long.numberOfTrailingZeros(special) >>> 3;
+				accept(words.get(i + k), base + i + k);
+				special &= special - 1; // Clear the lowest match
+			}
+		}
+		for (; i < limit; i++) {
+			byte b = words.get(i);
+			if (b == '\n' || b == '"' || (json && b == '\\')) {
+				accept(b, base + i);
+			}
+		}
+	}
+
+	/**
+	 * Moves the state machine over a newline, quote or backslash.
+	 *
+	 * @param b      the byte
+	 * @param offset the offset of the byte in the file
+	 */
+	private void accept(byte b, long offset) {
+		if (offset == escaped) { // the byte after a backslash in a string
+			return;
+		}
+		if (b == '"') {
+			quoted = !quoted; // a doubled quote in a CSV field toggles twice
+		} else if (b == '\\') {
+			if (quoted) {
+				escaped = offset + 1;
+			}
+		} else if (!quoted) { // a newline ending a record
+			records++;
+			end = offset + 1;
+			if (recordsPerBlock > 0 && records % recordsPerBlock == 0) {
+				if (++numberOfBlocks == offsets.length) {
+					if (offsets.length > Integer.MAX_VALUE / 2) {
+						throw new IllegalStateException("Too many blocks. Choose a larger block size.");
+					}
+					offsets = Arrays.copyOf(offsets, offsets.length * 2);
+				}
+				offsets[numberOfBlocks] = end;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of records of the file, once it has been scanned,
+	 * counting a last record without a newline.
+	 *
+	 * @param size the size of the file
+	 * @return the number of records
+	 */
+	long getRecords(long size) {
+		return records + (end < size ? 1 : 0);
+	}
+
+	/**
+	 * Returns the block boundaries, once the file has been scanned. The records
+	 * after the last complete block form a last block.
+	 *
+	 * @param size the size of the file
+	 * @return the offsets of the blocks, where block i spans offsets[i] to
+	 *         offsets[i + 1]
+	 */
+	long[] getOffsets(long size) {
+		int blocks = numberOfBlocks;
+		if (offsets[blocks] < size) {
+			if (++blocks == offsets.length) {
+				offsets = Arrays.copyOf(offsets, offsets.length + 1);
+			}
+			offsets[blocks] = size;
+		}
+		return Arrays.copyOf(offsets, blocks + 1);
+	}
+
+}
@@ -0,0 +1,49 @@
+package block;
+
+import java.io.IOException;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The StreamingBlockfy interface divides messages into blocks that are read
+ * lazily, as a BlockStream, instead of all at once as a BlockedMessage.
+ */
+
+public interface StreamingBlockfy {
+
+	/**
+	 * Opens a message as a stream of blocks, based on a specific strategy, which
+	 * is determined by either fixing the block size or the number of blocks. The
+	 * number of blocks is known when the stream is returned.
+	 *
+	 * @param fileName    the name of the file containing the message to be divided
+	 * @param blockChoice the strategy choice: 0 for fixing block size, 1 for fixing
+	 *                    number of blocks
+	 * @param number      the block size if blockChoice is 0, or the number of
+	 *                    blocks if blockChoice is 1
+	 * 
+	 * @return a BlockStream producing the blocks in order; it must be closed
+	 * @throws IOException if an I/O error occurs while opening the file
+	 */
+	public BlockStream openStream(String fileName, int blockChoice, int number) throws IOException;
+
+}
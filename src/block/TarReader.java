@@ -0,0 +1,262 @@
+package block;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The TarReader class reads the layout of a tar archive (ustar, GNU or pax):
+ * where each member starts, from its headers alone. The payloads are skipped
+ * without being read when the archive is a plain file; an archive read with
+ * gzip=on is inflated and its payloads discarded. Long-name headers ('L', 'K')
+ * and pax extended headers ('x', 'g') belong to the member that follows them,
+ * and a pax "size" record overrides the size of that member. Header checksums are not
+ * checked: a header is part of the block of its member, so a modified header
+ * is read with its size field like any other, and localized as a modified
+ * block when the archive is verified.
+ *
+ * @field starts The offsets at which the members start, headers included.
+ * @field members The number of members.
+ * @field size The size of the archive in bytes, end-of-archive blocks and
+ *        padding included.
+ */
+
+public class TarReader {
+
+	static final int RECORD = 512;
+
+	private long[] starts = new long[16];
+	private int members;
+	private long size;
+
+	// Constructor: reads the headers, inflating a gzip-compressed archive if
+	// inflate is true
+	public TarReader(String fileName, boolean inflate) throws IOException {
+		ByteBuffer header = BufferPool.acquire(RECORD);
+		try (ReadableByteChannel channel = GzipInput.open(fileName, inflate)) {
+			long offset = 0;
+			long start = -1; // the start of the member whose headers are being read
+			long paxSize = -1;
+			while (true) {
+				int read = readFully(channel, header.clear().limit(RECORD));
+				if (read == 0 || (read == RECORD && isZero(header))) {
+					offset += read;
+					break; // the end of the archive
+				}
+				if (read < RECORD) {
+					throw new IllegalArgumentException(
+							"Invalid tar archive: truncated header at offset " + offset + ".");
+				}
+				if (start < 0) {
+					start = offset;
+				}
+				byte type = header.get(156);
+				long length = paxSize >= 0 && type != 'x' && type != 'g' ? paxSize : number(header, 124, 12);
+				long padded = (length + RECORD - 1) / RECORD * RECORD;
+				offset += RECORD;
+
+				if (type == 'x') { // the pax records of the next member
+					ByteBuffer payload = readPayload(channel, length);
+					paxSize = paxSize(payload);
+					BufferPool.release(payload);
+					skip(channel, padded - length);
+				} else if (type == 'g' || type == 'L' || type == 'K') {
+					skip(channel, padded);
+				} else {
+					if (members == starts.length) {
+						starts = Arrays.copyOf(starts, starts.length * 2);
+					}
+					starts[members++] = start;
+					start = -1;
+					paxSize = -1;
+					skip(channel, padded);
+				}
+				offset += padded;
+			}
+			if (start >= 0) {
+				throw new IllegalArgumentException("Invalid tar archive: extended headers without a member.");
+			}
+			if (members == 0) {
+				throw new IllegalArgumentException("Invalid tar archive: no members.");
+			}
+			size = channel instanceof SeekableByteChannel ? ((SeekableByteChannel) channel).size()
+					: offset + remaining(channel);
+		} finally {
+			BufferPool.release(header);
+		}
+	}
+
+	/**
+	 * Reads as many bytes as the buffer holds, unless the channel ends.
+	 *
+	 * @return the number of bytes read
+	 */
+	private static int readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+			// Read the whole buffer unless the channel ends
+		}
+		return buffer.position();
+	}
+
+	/**
+	 * Skips bytes of the archive, reading and discarding them unless the channel
+	 * can seek.
+	 *
+	 * @throws IllegalArgumentException if the archive ends first
+	 */
+	private static void skip(ReadableByteChannel channel, long length) throws IOException {
+		if (channel instanceof SeekableByteChannel) {
+			SeekableByteChannel seekable = (SeekableByteChannel) channel;
+			if (seekable.position() + length > seekable.size()) {
+				throw new IllegalArgumentException("Invalid tar archive: truncated member.");
+			}
+			seekable.position(seekable.position() + length);
+			return;
+		}
+		ByteBuffer scratch = BufferPool.acquire((int) Math.min(length, ChannelReader.CHUNK_SIZE));
+		try {
+			while (length > 0) {
+				scratch.clear().limit((int) Math.min(length, scratch.capacity()));
+				int read = readFully(channel, scratch);
+				if (read < scratch.limit()) {
+					throw new IllegalArgumentException("Invalid tar archive: truncated member.");
+				}
+				length -= read;
+			}
+		} finally {
+			BufferPool.release(scratch);
+		}
+	}
+
+	/**
+	 * Reads the payload of an extended header, into a buffer of the BufferPool.
+	 */
+	private static ByteBuffer readPayload(ReadableByteChannel channel, long length) throws IOException {
+		if (length > 1 << 20) {
+			throw new IllegalArgumentException("Invalid tar archive: extended header too large.");
+		}
+		ByteBuffer payload = BufferPool.acquire((int) length);
+		if (readFully(channel, payload) < length) {
+			BufferPool.release(payload);
+			throw new IllegalArgumentException("Invalid tar archive: truncated member.");
+		}
+		return payload.flip();
+	}
+
+	/**
+	 * Counts the bytes left in a channel, such as the padding after the end of
+	 * the archive.
+	 */
+	private static long remaining(ReadableByteChannel channel) throws IOException {
+		long count = 0;
+		ByteBuffer scratch = BufferPool.acquire(RECORD * 20);
+		try {
+			int read;
+			while ((read = channel.read(scratch.clear())) >= 0) {
+				count += read;
+			}
+		} finally {
+			BufferPool.release(scratch);
+		}
+		return count;
+	}
+
+	/**
+	 * Reads the "size" record of pax extended header records, each written as
+	 * "length key=value\n".
+	 *
+	 * @return the size, or -1 if there is no size record
+	 */
+	private static long paxSize(ByteBuffer payload) {
+		String records = StandardCharsets.UTF_8.decode(payload).toString();
+		long size = -1;
+		for (String record : records.split("\n")) {
+			int space = record.indexOf(' ');
+			if (space >= 0 && record.startsWith("size=", space + 1)) {
+				try {
+					size = Long.parseLong(record.substring(space + 6));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Invalid tar archive: bad pax size.");
+				}
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Reads a numeric header field, in octal, or in base-256 when its first byte
+	 * has the high bit set (for sizes of 8 GB and more).
+	 */
+	private static long number(ByteBuffer header, int offset, int length) {
+		if ((header.get(offset) & 0x80) != 0) {
+			long value = header.get(offset) & 0x7F;
+			for (int i = 1; i < length; i++) {
+				value = value << 8 | (header.get(offset + i) & 0xFF);
+			}
+			return value;
+		}
+		long value = 0;
+		for (int i = 0; i < length; i++) {
+			byte b = header.get(offset + i);
+			if (b >= '0' && b <= '7') {
+				value = value * 8 + (b - '0');
+			} else if (b == 0 || (b == ' ' && value > 0)) {
+				break; // the field ends with a NUL or a space
+			}
+		}
+		return value;
+	}
+
+	private static boolean isZero(ByteBuffer header) {
+		for (int i = 0; i < RECORD; i++) {
+			if (header.get(i) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// getter methods
+	public int getMembers() {
+		return members;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the offset at which member i starts, its extended headers included.
+	 *
+	 * @param i the index of the member
+	 * @return the offset of the first header of member i
+	 */
+	public long getStart(int i) {
+		return starts[i];
+	}
+
+}
@@ -0,0 +1,170 @@
+package block;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The TiledMessage class is a BlockedMessage whose message is a raster of
+ * pixels stored row by row, and whose blocks are square tiles of that raster.
+ * Each tile is a strided view over the raster: its rows are passed one after
+ * the other, top to bottom, without copying (a row that crosses regions of the
+ * raster is passed in two parts).
+ *
+ * Colour rasters interleave the samples of each pixel. Their tiles either hold
+ * all the channels of their pixels, as the raster stores them, or one channel
+ * only, in which case every channel has its own tiles: the tiles of channel c
+ * follow those of channel c - 1, and their samples are gathered row by row.
+ *
+ * @field rows The number of rows of the raster.
+ * @field columns The number of pixels in each row of the raster.
+ * @field channels The number of samples per pixel.
+ * @field separateChannels Whether each channel is divided into its own tiles.
+ * @field blockRows The number of rows of tiles.
+ * @field blockColumns The number of columns of tiles.
+ */
+
+public class TiledMessage extends BlockedMessage {
+
+	private int rows;
+	private int columns;
+	private int channels;
+	private boolean separateChannels;
+	private int blockRows;
+	private int blockColumns;
+
+	// Constructor
+	public TiledMessage(LargeBuffer raster, int rows, int columns, int blockSize, String fileType) {
+		this(raster, rows, columns, 1, false, blockSize, fileType, "");
+	}
+
+	// Constructor: for rasters of several channels
+	public TiledMessage(LargeBuffer raster, int rows, int columns, int channels, boolean separateChannels,
+			int blockSize, String fileType, String parameters) {
+		super(raster, blockSize, ((rows + blockSize - 1) / blockSize) * ((columns + blockSize - 1) / blockSize)
+				* (separateChannels ? channels : 1), fileType, parameters);
+		this.rows = rows;
+		this.columns = columns;
+		this.channels = channels;
+		this.separateChannels = separateChannels;
+		this.blockRows = (rows + blockSize - 1) / blockSize;
+		this.blockColumns = (columns + blockSize - 1) / blockSize;
+	}
+
+	/**
+	 * Passes the rows of tile i to an action, top to bottom. Tiles are numbered
+	 * row by row, from the top-left corner of the raster, channel by channel if
+	 * the channels are separate.
+	 *
+	 * @param i      the index of the tile
+	 * @param action the action receiving the view of each row of the tile
+	 */
+	@Override
+	public void forEachSegment(int i, Consumer<ByteBuffer> action) {
+		int blockSize = getBlockSize();
+		int channel = separateChannels ? i / (blockRows * blockColumns) : 0;
+		int tile = separateChannels ? i % (blockRows * blockColumns) : i;
+		int startRow = (tile / blockColumns) * blockSize;
+		int endRow = Math.min(startRow + blockSize, rows);
+		int startColumn = (tile % blockColumns) * blockSize;
+		int width = Math.min(startColumn + blockSize, columns) - startColumn;
+
+		if (!separateChannels) {
+			for (int row = startRow; row < endRow; row++) {
+				message.forEachSegment(((long) row * columns + startColumn) * channels, (long) width * channels,
+						action);
+			}
+			return;
+		}
+
+		// Gather the samples of one channel, one row of the tile at a time
+		ByteBuffer samples = BufferPool.acquire(width);
+		for (int row = startRow; row < endRow; row++) {
+			long start = ((long) row * columns + startColumn) * channels + channel;
+			long[] position = { 0 }; // relative to start
+			message.forEachSegment(start, (long) (width - 1) * channels + 1, segment -> {
+				int j = (int) ((channels - position[0] % channels) % channels);
+				for (; j < segment.remaining(); j += channels) {
+					samples.put(segment.get(j));
+				}
+				position[0] += segment.remaining();
+			});
+			action.accept(samples.flip().asReadOnlyBuffer());
+			samples.clear().limit(width);
+		}
+		BufferPool.release(samples);
+	}
+
+	/**
+	 * Returns the number of bytes in tile i.
+	 *
+	 * @param i the index of the tile
+	 * @return the length of tile i in bytes
+	 */
+	@Override
+	public long getBlockLength(int i) {
+		int blockSize = getBlockSize();
+		int tile = separateChannels ? i % (blockRows * blockColumns) : i;
+		int startRow = (tile / blockColumns) * blockSize;
+		int startColumn = (tile % blockColumns) * blockSize;
+		return (long) (Math.min(startRow + blockSize, rows) - startRow)
+				* (Math.min(startColumn + blockSize, columns) - startColumn) * (separateChannels ? 1 : channels);
+	}
+
+	/**
+	 * The tiles do not follow the raster order, so concatenating them does not
+	 * give the message.
+	 *
+	 * @return false
+	 */
+	@Override
+	public boolean isSequential() {
+		return false;
+	}
+
+	// getter methods
+	public int getRows() {
+		return rows;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getChannels() {
+		return channels;
+	}
+
+	public boolean isSeparateChannels() {
+		return separateChannels;
+	}
+
+	public int getBlockRows() {
+		return blockRows;
+	}
+
+	public int getBlockColumns() {
+		return blockColumns;
+	}
+
+}
@@ -0,0 +1,181 @@
+package block;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The WAVReader class reads the layout of a RIFF WAVE file: the sample format
+ * from its "fmt " chunk and the position of its "data" chunk. Other chunks are
+ * skipped, and the samples are not read. Only uncompressed formats are
+ * accepted (integer PCM, IEEE float, or their extensible form), in which every
+ * frame of samples has the same number of bytes.
+ *
+ * @field format The format tag of the samples.
+ * @field channels The number of channels.
+ * @field sampleRate The number of frames per second.
+ * @field bitsPerSample The number of bits of each sample.
+ * @field blockAlign The number of bytes of each frame (one sample per channel).
+ * @field dataOffset The offset of the samples in the file.
+ * @field dataLength The number of bytes of samples, in whole frames.
+ */
+
+public class WAVReader {
+
+	private static final int PCM = 1;
+	private static final int IEEE_FLOAT = 3;
+	private static final int EXTENSIBLE = 0xFFFE;
+
+	private int format;
+	private int channels;
+	private int sampleRate;
+	private int bitsPerSample;
+	private int blockAlign;
+	private long dataOffset = -1;
+	private long dataLength;
+
+	// Constructor: reads the chunk headers
+	public WAVReader(String fileName) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			long size = channel.size();
+			ByteBuffer header = read(channel, 0, 12);
+			if (!tag(header, 0).equals("RIFF") || !tag(header, 8).equals("WAVE")) {
+				throw new IllegalArgumentException("Invalid audio. Expected a RIFF WAVE file.");
+			}
+
+			long offset = 12;
+			while (offset + 8 <= size && dataOffset < 0) {
+				ByteBuffer chunk = read(channel, offset, 8);
+				String id = tag(chunk, 0);
+				long length = Integer.toUnsignedLong(chunk.getInt(4));
+				if (id.equals("fmt ")) {
+					readFormat(read(channel, offset + 8, (int) Math.min(length, 40)));
+				} else if (id.equals("data")) {
+					if (blockAlign == 0) {
+						throw new IllegalArgumentException("Invalid audio: the data chunk comes before the format.");
+					}
+					dataOffset = offset + 8;
+					// Files still being written may declare no length or too much
+					long available = Math.min(length, size - dataOffset);
+					dataLength = available - available % blockAlign;
+				}
+				offset += 8 + length + (length & 1); // chunks are padded to even lengths
+			}
+			if (dataOffset < 0) {
+				throw new IllegalArgumentException("Invalid audio: no data chunk.");
+			}
+		}
+	}
+
+	/**
+	 * Reads the sample format from the body of the "fmt " chunk.
+	 *
+	 * @param body the chunk body
+	 * @throws IllegalArgumentException if the samples are compressed
+	 */
+	private void readFormat(ByteBuffer body) {
+		if (body.limit() < 16) {
+			throw new IllegalArgumentException("Invalid audio: the format chunk is too short.");
+		}
+		format = Short.toUnsignedInt(body.getShort(0));
+		channels = Short.toUnsignedInt(body.getShort(2));
+		sampleRate = body.getInt(4);
+		blockAlign = Short.toUnsignedInt(body.getShort(12));
+		bitsPerSample = Short.toUnsignedInt(body.getShort(14));
+		if (format != PCM && format != IEEE_FLOAT && format != EXTENSIBLE) {
+			throw new IllegalArgumentException(
+					"Unsupported audio: only uncompressed PCM or float samples are supported, not format " + format
+							+ ".");
+		}
+		if (channels < 1 || sampleRate < 1 || blockAlign < 1) {
+			throw new IllegalArgumentException("Invalid audio: missing channels, sample rate or frame size.");
+		}
+	}
+
+	/**
+	 * Reads bytes at an offset of a file, in little-endian order.
+	 */
+	private static ByteBuffer read(FileChannel channel, long offset, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) > 0) {
+			// Read the whole length unless the file ends
+		}
+		return buffer.flip();
+	}
+
+	/**
+	 * Reads a four-character chunk identifier.
+	 */
+	private static String tag(ByteBuffer buffer, int offset) {
+		if (buffer.limit() < offset + 4) {
+			return "";
+		}
+		byte[] id = new byte[4];
+		buffer.get(offset, id);
+		return new String(id, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Returns the number of frames of samples.
+	 *
+	 * @return the number of frames
+	 */
+	public long getFrames() {
+		return dataLength / blockAlign;
+	}
+
+	// getter methods
+	public int getFormat() {
+		return format;
+	}
+
+	public int getChannels() {
+		return channels;
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getBitsPerSample() {
+		return bitsPerSample;
+	}
+
+	public int getBlockAlign() {
+		return blockAlign;
+	}
+
+	public long getDataOffset() {
+		return dataOffset;
+	}
+
+	public long getDataLength() {
+		return dataLength;
+	}
+
+}
@@ -0,0 +1,265 @@
+package block;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The Y4MReader class reads the layout of an uncompressed YUV4MPEG2 (Y4M)
+ * video: the geometry from the stream header, and the offsets of the frames,
+ * found by reading only the header line of each frame. The samples are not
+ * read. Each frame holds 8-bit planes one after the other: Y at full size,
+ * then U and V subsampled according to the chroma format (none for mono).
+ *
+ * @field columns The width of the frames in pixels.
+ * @field rows The height of the frames in pixels.
+ * @field chroma The chroma format, e.g. "420jpeg" (the default), "422",
+ *        "444" or "mono".
+ * @field subsamplingX The horizontal chroma subsampling factor.
+ * @field subsamplingY The vertical chroma subsampling factor.
+ * @field planes The number of planes per frame: 1 for mono, 3 otherwise.
+ * @field frameStarts The offset of the header line of each frame, with the
+ *        size of the file last.
+ * @field dataStarts The offset of the samples of each frame.
+ */
+
+public class Y4MReader {
+
+	private static final String MAGIC = "YUV4MPEG2";
+	private static final int MAX_LINE = 1 << 12;
+
+	private int columns;
+	private int rows;
+	private String chroma = "420jpeg";
+	private int subsamplingX;
+	private int subsamplingY;
+	private int planes;
+	private long[] frameStarts;
+	private long[] dataStarts;
+
+	// Constructor: reads the stream header and the frame headers
+	public Y4MReader(String fileName) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			String header = readLine(channel, 0);
+			String[] fields = header.split(" ");
+			if (!fields[0].equals(MAGIC)) {
+				throw new IllegalArgumentException("Invalid video. Expected a YUV4MPEG2 stream.");
+			}
+			for (int i = 1; i < fields.length; i++) {
+				if (fields[i].isEmpty()) {
+					continue;
+				}
+				String value = fields[i].substring(1);
+				switch (fields[i].charAt(0)) {
+				case 'W':
+					columns = Integer.parseInt(value);
+					break;
+				case 'H':
+					rows = Integer.parseInt(value);
+					break;
+				case 'C':
+					chroma = value;
+					break;
+				default: // frame rate, interlacing, aspect ratio and extensions do not affect the layout
+					break;
+				}
+			}
+			setSubsampling();
+			if (columns < 1 || rows < 1) {
+				throw new IllegalArgumentException("Invalid video: missing width or height.");
+			}
+			scanFrames(channel, header.length() + 1);
+		}
+	}
+
+	/**
+	 * Sets the chroma subsampling factors and the number of planes from the
+	 * chroma format.
+	 *
+	 * @throws IllegalArgumentException if the chroma format is not supported
+	 */
+	private void setSubsampling() {
+		if (chroma.equals("420") || chroma.equals("420jpeg") || chroma.equals("420paldv")
+				|| chroma.equals("420mpeg2")) { // the 8-bit 4:2:0 tags, which differ in chroma siting only
+			subsamplingX = 2;
+			subsamplingY = 2;
+			planes = 3;
+		} else if (chroma.equals("422")) {
+			subsamplingX = 2;
+			subsamplingY = 1;
+			planes = 3;
+		} else if (chroma.equals("444")) {
+			subsamplingX = 1;
+			subsamplingY = 1;
+			planes = 3;
+		} else if (chroma.equals("mono")) {
+			subsamplingX = 1;
+			subsamplingY = 1;
+			planes = 1;
+		} else {
+			throw new IllegalArgumentException(
+					"Unsupported video: only 8-bit 420, 422, 444 and mono chroma are supported, not " + chroma + ".");
+		}
+	}
+
+	/**
+	 * Finds the offsets of the frames, skipping over their samples.
+	 *
+	 * @param channel the video file
+	 * @param offset  the offset of the first frame header
+	 * @throws IOException if an I/O error occurs while reading
+	 */
+	private void scanFrames(FileChannel channel, long offset) throws IOException {
+		long size = channel.size();
+		long frameLength = getFrameLength();
+		long[] starts = new long[16];
+		long[] data = new long[16];
+		int frames = 0;
+		while (offset < size) {
+			String line = readLine(channel, offset);
+			if (!line.startsWith("FRAME")) {
+				throw new IllegalArgumentException("Invalid video: expected a frame at offset " + offset + ".");
+			}
+			if (frames + 1 == starts.length) {
+				starts = Arrays.copyOf(starts, starts.length * 2);
+				data = Arrays.copyOf(data, data.length * 2);
+			}
+			starts[frames] = offset;
+			data[frames] = offset + line.length() + 1;
+			offset = data[frames] + frameLength;
+			if (offset > size) {
+				throw new IllegalArgumentException("Invalid video: frame " + frames + " is truncated.");
+			}
+			frames++;
+		}
+		starts[frames] = size;
+		frameStarts = Arrays.copyOf(starts, frames + 1);
+		dataStarts = Arrays.copyOf(data, frames);
+	}
+
+	/**
+	 * Reads a header line, without its newline.
+	 *
+	 * @param channel the video file
+	 * @param offset  the offset of the line
+	 * @return the line
+	 * @throws IOException if an I/O error occurs while reading
+	 */
+	private static String readLine(FileChannel channel, long offset) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(MAX_LINE);
+		while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) > 0) {
+			for (int i = 0; i < buffer.position(); i++) {
+				if (buffer.get(i) == '\n') {
+					return new String(buffer.array(), 0, i, StandardCharsets.US_ASCII);
+				}
+			}
+		}
+		throw new IllegalArgumentException("Invalid video: header line at offset " + offset + " is not terminated.");
+	}
+
+	/**
+	 * Returns the number of bytes of the samples of a frame.
+	 *
+	 * @return the length of a frame without its header line
+	 */
+	public long getFrameLength() {
+		return getPlaneLength(0) + (planes - 1) * getPlaneLength(1);
+	}
+
+	/**
+	 * Returns the width of a plane.
+	 *
+	 * @param plane 0 for Y, 1 for U, 2 for V
+	 * @return the width of the plane in samples
+	 */
+	public int getPlaneColumns(int plane) {
+		return plane == 0 ? columns : (columns + subsamplingX - 1) / subsamplingX;
+	}
+
+	/**
+	 * Returns the height of a plane.
+	 *
+	 * @param plane 0 for Y, 1 for U, 2 for V
+	 * @return the height of the plane in samples
+	 */
+	public int getPlaneRows(int plane) {
+		return plane == 0 ? rows : (rows + subsamplingY - 1) / subsamplingY;
+	}
+
+	/**
+	 * Returns the offset of a plane within the samples of a frame.
+	 *
+	 * @param plane 0 for Y, 1 for U, 2 for V
+	 * @return the offset of the plane
+	 */
+	public long getPlaneOffset(int plane) {
+		return plane == 0 ? 0 : getPlaneLength(0) + (plane - 1) * getPlaneLength(1);
+	}
+
+	private long getPlaneLength(int plane) {
+		return (long) getPlaneColumns(plane) * getPlaneRows(plane);
+	}
+
+	// getter methods
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public String getChroma() {
+		return chroma;
+	}
+
+	public int getSubsamplingX() {
+		return subsamplingX;
+	}
+
+	public int getSubsamplingY() {
+		return subsamplingY;
+	}
+
+	public int getPlanes() {
+		return planes;
+	}
+
+	public int getFrames() {
+		return dataStarts.length;
+	}
+
+	public long getFrameStart(int frame) {
+		return frameStarts[frame];
+	}
+
+	public long getDataStart(int frame) {
+		return dataStarts[frame];
+	}
+
+}
@@ -3,7 +3,7 @@ package cdss;
 import java.security.SecureRandom;
 
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
-import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
 import org.bouncycastle.pqc.crypto.DigestingMessageSigner;
 import org.bouncycastle.pqc.crypto.crystals.dilithium.DilithiumKeyGenerationParameters;
@@ -11,6 +11,8 @@ import org.bouncycastle.pqc.crypto.crystals.dilithium.DilithiumKeyPairGenerator;
 import org.bouncycastle.pqc.crypto.crystals.dilithium.DilithiumParameters;
 import org.bouncycastle.pqc.crypto.crystals.dilithium.DilithiumSigner;
 
+import hash.Digests;
+
 /**
  * Copyright 2024, Dongxia (Mico) Luo
  *
@@ -78,7 +80,7 @@ public class Dilithium implements CDSS {
 	@Override
 	public byte[] Sign(byte[] input, AsymmetricKeyParameter privateKey) throws Exception {
 		DilithiumSigner dilithiumSign = new DilithiumSigner();
-		SHA256Digest digest = new SHA256Digest();
+		Digest digest = Digests.create("SHA2256");
 		DigestingMessageSigner digestSigner = new DigestingMessageSigner(dilithiumSign, digest);
 
 		digestSigner.init(true, privateKey);
@@ -102,7 +104,7 @@ public class Dilithium implements CDSS {
 	@Override
 	public boolean Verify(byte[] input, byte[] signature, AsymmetricKeyParameter publicKey) throws Exception {
 		DilithiumSigner dilithiumVerify = new DilithiumSigner();
-		SHA256Digest digest = new SHA256Digest();
+		Digest digest = Digests.create("SHA2256");
 		DigestingMessageSigner digestVerify = new DigestingMessageSigner(dilithiumVerify, digest);
 
 		digestVerify.init(false, publicKey);
@@ -6,13 +6,15 @@ import org.bouncycastle.crypto.params.ECDomainParameters;
 import org.bouncycastle.crypto.params.ECKeyGenerationParameters;
 import org.bouncycastle.asn1.x9.X9ECParameters;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
-import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.ec.CustomNamedCurves;
 import org.bouncycastle.crypto.signers.ECDSASigner;
 import org.bouncycastle.crypto.signers.DSADigestSigner;
 
 import java.security.SecureRandom;
 
+import hash.Digests;
+
 /**
  * Copyright 2024, Dongxia (Mico) Luo
  *
@@ -82,7 +84,7 @@ public class ECDSA implements CDSS {
 	public byte[] Sign(byte[] input, AsymmetricKeyParameter privKey) throws Exception {
 		// Create an ECDSASigner instance for signing
 		ECDSASigner signer = new ECDSASigner();
-		SHA256Digest digest = new SHA256Digest();
+		Digest digest = Digests.create("SHA2256");
 		DSADigestSigner digestSigner = new DSADigestSigner(signer, digest);
 
 		digestSigner.init(true, privKey);
@@ -106,7 +108,7 @@ public class ECDSA implements CDSS {
 	public boolean Verify(byte[] input, byte[] signature, AsymmetricKeyParameter publicKey) throws Exception {
 		// Create an ECDSASigner instance for verification
 		ECDSASigner verifier = new ECDSASigner();
-		SHA256Digest digest = new SHA256Digest();
+		Digest digest = Digests.create("SHA2256");
 		DSADigestSigner digestVerifier = new DSADigestSigner(verifier, digest);
 
 		digestVerifier.init(false, publicKey);
@@ -3,7 +3,7 @@ package cdss;
 import java.security.SecureRandom;
 
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
-import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
 import org.bouncycastle.pqc.crypto.DigestingMessageSigner;
 import org.bouncycastle.pqc.crypto.falcon.FalconKeyGenerationParameters;
@@ -11,6 +11,8 @@ import org.bouncycastle.pqc.crypto.falcon.FalconKeyPairGenerator;
 import org.bouncycastle.pqc.crypto.falcon.FalconParameters;
 import org.bouncycastle.pqc.crypto.falcon.FalconSigner;
 
+import hash.Digests;
+
 /**
  * Copyright 2024, Dongxia (Mico) Luo
  *
@@ -73,7 +75,7 @@ public class FALCON implements CDSS {
 	 */
 	@Override
 	public byte[] Sign(byte[] input, AsymmetricKeyParameter privateKey) throws Exception {
-		SHA256Digest digest = new SHA256Digest();
+		Digest digest = Digests.create("SHA2256");
 		FalconSigner falconSign = new FalconSigner();
 		DigestingMessageSigner digestSigner = new DigestingMessageSigner(falconSign, digest);
 
@@ -96,7 +98,7 @@ public class FALCON implements CDSS {
 	 */
 	@Override
 	public boolean Verify(byte[] input, byte[] signature, AsymmetricKeyParameter publicKey) throws Exception {
-		SHA256Digest digest = new SHA256Digest();
+		Digest digest = Digests.create("SHA2256");
 		FalconSigner falconVerify = new FalconSigner();
 		DigestingMessageSigner digestVerify = new DigestingMessageSigner(falconVerify, digest);
 
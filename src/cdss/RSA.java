@@ -7,10 +7,12 @@ import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.generators.RSAKeyPairGenerator;
 import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
 import org.bouncycastle.crypto.params.RSAKeyGenerationParameters;
-import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.engines.RSAEngine;
 import org.bouncycastle.crypto.signers.PSSSigner;
 
+import hash.Digests;
+
 /**
  * Copyright 2024, Dongxia (Mico) Luo
  *
@@ -74,7 +76,7 @@ public class RSA implements CDSS {
 	@Override
 	public byte[] Sign(byte[] bytes, AsymmetricKeyParameter privKey) throws Exception {
 
-		SHA256Digest digest = new SHA256Digest();
+		Digest digest = Digests.create("SHA2256");
 		RSAEngine engine = new RSAEngine();
 		PSSSigner signer = new PSSSigner(engine, digest, digest.getDigestSize());
 
@@ -99,7 +101,7 @@ public class RSA implements CDSS {
 	@Override
 	public boolean Verify(byte[] bytes, byte[] signature, AsymmetricKeyParameter publicKey) throws Exception {
 
-		SHA256Digest digest = new SHA256Digest();
+		Digest digest = Digests.create("SHA2256");
 		RSAEngine engine = new RSAEngine();
 		PSSSigner verifier = new PSSSigner(engine, digest, digest.getDigestSize());
 
@@ -5,12 +5,14 @@ import org.bouncycastle.pqc.crypto.sphincsplus.SPHINCSPlusKeyGenerationParameter
 import org.bouncycastle.pqc.crypto.sphincsplus.SPHINCSPlusKeyPairGenerator;
 import org.bouncycastle.pqc.crypto.sphincsplus.SPHINCSPlusParameters;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
-import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
 import org.bouncycastle.pqc.crypto.sphincsplus.SPHINCSPlusSigner;
 
 import java.security.SecureRandom;
 
+import hash.Digests;
+
 /**
  * Copyright 2024, Dongxia (Mico) Luo
  *
@@ -76,7 +78,7 @@ public class SPHINCSPlus implements CDSS {
 	public byte[] Sign(byte[] input, AsymmetricKeyParameter privKey) throws Exception {
 		// Create SPHINCSPlusSigner to sign
 		SPHINCSPlusSigner sphincsSign = new SPHINCSPlusSigner();
-		SHA256Digest digest = new SHA256Digest();
+		Digest digest = Digests.create("SHA2256");
 		DigestingMessageSigner digestSigner = new DigestingMessageSigner(sphincsSign, digest);
 
 		digestSigner.init(true, privKey);
@@ -101,7 +103,7 @@ public class SPHINCSPlus implements CDSS {
 	public boolean Verify(byte[] input, byte[] signature, AsymmetricKeyParameter publicKey) throws Exception {
 		// Create SPHINCSplusSigner to verify
 		SPHINCSPlusSigner sphincsVerify = new SPHINCSPlusSigner();
-		SHA256Digest digest = new SHA256Digest();
+		Digest digest = Digests.create("SHA2256");
 		DigestingMessageSigner digestVerify = new DigestingMessageSigner(sphincsVerify, digest);
 
 		digestVerify.init(false, publicKey);
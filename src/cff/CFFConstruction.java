@@ -14,4 +14,24 @@ public interface CFFConstruction {
 	 * @return a CFF constructed with the given parameters
 	 */
 	CFF build(int d, int n);
+
+	/**
+	 * Computes the number of rows t of the CFF that build would construct,
+	 * without constructing it.
+	 *
+	 * @param d the number of defectives
+	 * @param n the number of items
+	 * @return the number of rows t
+	 */
+	int rows(int d, int n);
+
+	/**
+	 * Computes the number of rows containing each item in the CFF that build
+	 * would construct, which is how many times each block is hashed.
+	 *
+	 * @param d the number of defectives
+	 * @param n the number of items
+	 * @return the weight of each column
+	 */
+	int weight(int d, int n);
 }
@@ -27,6 +27,32 @@ public class RS implements CFFConstruction {
 		return new CFFCode(d, n, q, OA);
 	}
 
+	/**
+	 * Computes the number of rows N * q of the CFF: one for each symbol at each
+	 * position of the codewords.
+	 *
+	 * @param d the number of defectives
+	 * @param n the number of items
+	 * @return the number of rows t
+	 */
+	@Override
+	public int rows(int d, int n) {
+		int[] params = { 2, 2, 2 };
+		findParameters(n, d, params);
+		return params[1] * params[2];
+	}
+
+	/**
+	 * Each codeword has one symbol at each of its N positions, so each item is in
+	 * N rows.
+	 */
+	@Override
+	public int weight(int d, int n) {
+		int[] params = { 2, 2, 2 };
+		findParameters(n, d, params);
+		return params[1];
+	}
+
 	/**
 	 * Finds the optimal values of k, N, and q based on the provided number of items
 	 * (n) and defectives (d).
@@ -20,32 +20,55 @@ public class STS implements CFFConstruction {
 	 */
 	@Override
 	public CFF build(int d, int b) { // d = 2 for STS
+		int v = rows(d, b);
+		int[][] STS = generateSTS(v); // generate STS
+		return new CFFSetSystem(d, b, v, STS);
+	}
+
+	/**
+	 * Computes the order v of the Steiner Triple System with at least b triples,
+	 * which is the number of rows of the CFF.
+	 *
+	 * @param d the number of defectives (must be 2)
+	 * @param b the number of blocks
+	 * @return the order v
+	 * @throws IllegalArgumentException if d is not equal to 2 or if b is less than
+	 *                                  7
+	 */
+	@Override
+	public int rows(int d, int b) {
 		if (d != 2) {
 			throw new IllegalArgumentException("STS's construction requires d = 2");
 		} else if (b < 7) {
 			throw new IllegalArgumentException("STS is only applicable for n bigger or equal to 7");
-		} else {
-			// Calculate v based on b
-			// If v is not congruent to 1 or 3 modulo 6, increment
-			int v = (int) Math.ceil((1 + Math.sqrt(1 + 24 * b)) / 2);
-			switch (v % 6) {
-			case 0:
-			case 2: {
-				v++;
-				break;
-			}
-			case 4:
-			case 5: {
-				v = v + 7 - (v % 6);
-				break;
-			}
-			default:
-				break;
-			}
-
-			int[][] STS = generateSTS(v); // generate STS
-			return new CFFSetSystem(d, b, v, STS);
 		}
+		// Calculate v based on b
+		// If v is not congruent to 1 or 3 modulo 6, increment
+		int v = (int) Math.ceil((1 + Math.sqrt(1 + 24.0 * b)) / 2);
+		switch (v % 6) {
+		case 0:
+		case 2: {
+			v++;
+			break;
+		}
+		case 4:
+		case 5: {
+			v = v + 7 - (v % 6);
+			break;
+		}
+		default:
+			break;
+		}
+		return v;
+	}
+
+	/**
+	 * Each block of an STS is a triple, so each item is in 3 rows.
+	 */
+	@Override
+	public int weight(int d, int b) {
+		rows(d, b); // check the parameters
+		return 3;
 	}
 
 	/**
@@ -24,10 +24,7 @@ public class Sperner implements CFFConstruction {
 		if (d != 1) {
 			throw new IllegalArgumentException("Sperner's construction requires d = 1");
 		} else {
-			int t = 1; // Calculate the corresponding rows, which is 't'
-			while (binomial(t, t / 2) < n) {
-				t++;
-			}
+			int t = rows(d, n); // Calculate the corresponding rows, which is 't'
 
 			int[] subset = new int[t / 2]; // Calculate the first t-subset of n
 			for (int k = 1; k <= subset.length; k++) {
@@ -45,6 +42,35 @@ public class Sperner implements CFFConstruction {
 		}
 	}
 
+	/**
+	 * Computes the smallest t such that the t/2-subsets of t elements number at
+	 * least n.
+	 *
+	 * @param d the number of defectives (must be 1)
+	 * @param n the number of items
+	 * @return the number of rows t
+	 * @throws IllegalArgumentException if d is not equal to 1
+	 */
+	@Override
+	public int rows(int d, int n) {
+		if (d != 1) {
+			throw new IllegalArgumentException("Sperner's construction requires d = 1");
+		}
+		int t = 1;
+		while (binomial(t, t / 2) < n) {
+			t++;
+		}
+		return t;
+	}
+
+	/**
+	 * Each item is a t/2-subset, so it is in t/2 rows.
+	 */
+	@Override
+	public int weight(int d, int n) {
+		return rows(d, n) / 2;
+	}
+
 	/**
 	 * Computes the next subset in lexicographic order. This method is based on
 	 * Algorithm 2.6 from Stinson's Combinatorial Algorithms.
@@ -0,0 +1,238 @@
+package hash;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.Blake3Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The DigestCheck class checks the digests implemented in this package against
+ * known answers and against the digests of Bouncy Castle and of the Java
+ * platform. The inputs are the bytes i % 251, as in the BLAKE3 test vectors, of
+ * lengths around the block, chunk and subtree boundaries, fed in one update, in
+ * small and uneven pieces, and as ByteBuffers. The multi-buffer SHA-256 of
+ * VectorSHA256 is checked whenever the jdk.incubator.vector module is present,
+ * even where MultiBufferSHA256 would not use it. Run it with:
+ *
+ *    java --add-modules jdk.incubator.vector -cp bcprov-jdk18on-177.jar:./ hash.DigestCheck
+ *
+ * It prints each mismatch, and exits with status 1 if there is any.
+ *
+ * @field failures The number of mismatches found.
+ */
+
+public final class DigestCheck {
+
+	// Lengths around the boundaries of BLAKE3 blocks (64 bytes), chunks (1 KB) and
+	// subtrees (64 KB)
+	private static final int[] BLAKE3_LENGTHS = { 0, 1, 55, 56, 63, 64, 65, 127, 128, 1023, 1024, 1025, 2047, 2048,
+			2049, 3072, 3073, 31744, 32768, 32769, 65535, 65536, 65537, 65536 + 1024, 131071, 131072, 131073,
+			3 * 65536 + 1000, 1 << 20, (1 << 20) + 1, (4 << 20) + 4097 };
+
+	// Lengths around the padding of SHA-256: the length fits in the last block up
+	// to 55 bytes, and needs another block from 56 to 64
+	private static final int[] SHA256_LENGTHS = { 0, 1, 3, 55, 56, 57, 63, 64, 65, 119, 120, 127, 128, 129, 1000,
+			4096, 65537 };
+
+	// Pieces of uneven sizes, cycled through when feeding an input in pieces
+	private static final int[] PIECES = { 1, 63, 64, 1023, 1024, 1025, 7, 65535, 65536, 65537 };
+
+	private static int failures;
+
+	private DigestCheck() {
+	}
+
+	public static void main(String[] args) {
+		checkBlake3();
+		checkSHA256();
+		if (failures > 0) {
+			System.out.println(failures + " digest mismatches.");
+			System.exit(1);
+		}
+		System.out.println("All digests match.");
+	}
+
+	/**
+	 * Checks ParallelBlake3Digest against the BLAKE3 test vectors and against
+	 * Bouncy Castle's Blake3Digest.
+	 */
+	private static void checkBlake3() {
+		// Known answers, from the test vectors of the BLAKE3 reference implementation
+		check("BLAKE3 known answer, 0 bytes", "af1349b9f5f9a1a6a0404dea36dcc9499bcb25c9adc112b7cc9a93cae41f3262",
+				Hex.toHexString(hash(new ParallelBlake3Digest(), input(0))));
+		check("BLAKE3 known answer, 1 byte", "2d3adedff11b61f14c886e35afa036736dcd87a74d27b5c1510225d0f592e213",
+				Hex.toHexString(hash(new ParallelBlake3Digest(), input(1))));
+
+		ParallelBlake3Digest reused = new ParallelBlake3Digest(); // reset by each doFinal
+		for (int length : BLAKE3_LENGTHS) {
+			byte[] in = input(length);
+			String expected = Hex.toHexString(hash(new Blake3Digest(256), in));
+			String name = "BLAKE3, " + length + " bytes";
+			check(name + ", one update", expected, Hex.toHexString(hash(new ParallelBlake3Digest(), in)));
+			check(name + ", reused digest", expected, Hex.toHexString(hash(reused, in)));
+			check(name + ", uneven pieces", expected, Hex.toHexString(hashInPieces(new ParallelBlake3Digest(), in)));
+			if (length <= 4096) {
+				ParallelBlake3Digest digest = new ParallelBlake3Digest();
+				for (byte b : in) {
+					digest.update(b);
+				}
+				check(name + ", byte by byte", expected, Hex.toHexString(finish(digest)));
+			}
+
+			ParallelBlake3Digest digest = new ParallelBlake3Digest();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(length + 3);
+			buffer.put(new byte[3]).put(in).position(3);
+			digest.update(buffer);
+			check(name + ", direct buffer", expected, Hex.toHexString(finish(digest)));
+			check(name + ", buffer position kept", "3", Integer.toString(buffer.position()));
+		}
+	}
+
+	/**
+	 * Checks the SHA-256 digests of Bouncy Castle and of the Java platform against
+	 * known answers and each other, and VectorSHA256 against them.
+	 */
+	private static void checkSHA256() {
+		MessageDigest platform;
+		try {
+			platform = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("The Java platform has no SHA-256.", e);
+		}
+		// Known answers, from FIPS 180-2
+		check("SHA-256 known answer, empty", "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+				Hex.toHexString(hash(new SHA256Digest(), new byte[0])));
+		check("SHA-256 known answer, abc", "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+				Hex.toHexString(hash(new SHA256Digest(), "abc".getBytes())));
+
+		List<byte[]> inputs = new ArrayList<>();
+		List<String> expected = new ArrayList<>();
+		for (int length : SHA256_LENGTHS) {
+			byte[] in = input(length);
+			String bc = Hex.toHexString(hash(new SHA256Digest(), in));
+			check("SHA-256, " + length + " bytes, Java platform", bc, Hex.toHexString(platform.digest(in)));
+			inputs.add(in);
+			expected.add(bc);
+		}
+
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+			System.out.println("Multi-buffer SHA-256 not checked: run with --add-modules jdk.incubator.vector.");
+			return;
+		}
+		int lanes = VectorSHA256.LANES;
+		// More messages than lanes, so that lanes are refilled at every length
+		for (int round = 0; round < 3; round++) {
+			List<Iterator<ByteBuffer>> messages = new ArrayList<>();
+			List<ByteBuffer> views = new ArrayList<>();
+			List<String> answers = new ArrayList<>();
+			for (int m = 0; m < 2 * lanes + 1; m++) {
+				int k = (m * (round + 1)) % inputs.size();
+				List<ByteBuffer> segments = segments(inputs.get(k), m + round);
+				views.addAll(segments);
+				messages.add(segments.iterator());
+				answers.add(expected.get(k));
+			}
+			byte[][] hashes = new VectorSHA256().hash(messages);
+			for (int m = 0; m < hashes.length; m++) {
+				check("Multi-buffer SHA-256, round " + round + ", message " + m, answers.get(m),
+						Hex.toHexString(hashes[m]));
+			}
+			for (ByteBuffer view : views) {
+				check("Multi-buffer SHA-256, views left unchanged", "1", Integer.toString(view.position()));
+			}
+		}
+	}
+
+	/**
+	 * Splits an input into read-only views of uneven sizes, each starting at
+	 * position 1 of its buffer, some of them little-endian.
+	 */
+	private static List<ByteBuffer> segments(byte[] in, int seed) {
+		List<ByteBuffer> segments = new ArrayList<>();
+		int offset = 0;
+		for (int i = seed; offset < in.length; i++) {
+			int length = Math.min(PIECES[i % PIECES.length], in.length - offset);
+			ByteBuffer view = ByteBuffer.allocate(length + 1);
+			view.position(1);
+			view.put(in, offset, length).position(1);
+			segments.add(view.asReadOnlyBuffer().order(i % 2 == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN));
+			offset += length;
+		}
+		return segments;
+	}
+
+	/**
+	 * Returns the input of a given length, the bytes i % 251.
+	 */
+	static byte[] input(int length) {
+		byte[] in = new byte[length];
+		for (int i = 0; i < length; i++) {
+			in[i] = (byte) (i % 251);
+		}
+		return in;
+	}
+
+	static byte[] hash(Digest digest, byte[] in) {
+		digest.update(in, 0, in.length);
+		return finish(digest);
+	}
+
+	/**
+	 * Hashes an input fed in pieces of the sizes of PIECES, in turn.
+	 */
+	static byte[] hashInPieces(Digest digest, byte[] in) {
+		int offset = 0;
+		for (int i = 0; offset < in.length; i++) {
+			int length = Math.min(PIECES[i % PIECES.length], in.length - offset);
+			digest.update(in, offset, length);
+			offset += length;
+		}
+		return finish(digest);
+	}
+
+	static byte[] finish(Digest digest) {
+		byte[] out = new byte[digest.getDigestSize()];
+		digest.doFinal(out, 0);
+		return out;
+	}
+
+	/**
+	 * Compares a result with the one expected, printing a mismatch.
+	 */
+	static void check(String name, String expected, String actual) {
+		if (!expected.equals(actual)) {
+			System.out.println("Mismatch: " + name + ": expected " + expected + ", got " + actual);
+			failures++;
+		}
+	}
+
+}
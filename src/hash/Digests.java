@@ -0,0 +1,119 @@
+package hash;
+
+import java.lang.management.ManagementFactory;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.Blake2bDigest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.digests.SHA3Digest;
+import org.bouncycastle.crypto.digests.SHA512Digest;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The Digests class creates the digests of the hash algorithms used by the MTSS
+ * and the CDSS signers. When HotSpot compiles an algorithm with intrinsics
+ * (UseSHA256Intrinsics, UseSHA512Intrinsics, UseSHA3Intrinsics), the digest of
+ * the Java platform is used, wrapped in a JCADigest; otherwise the digest of
+ * Bouncy Castle is used. The intrinsic options are diagnostic, so unless they
+ * are unlocked, UseSHA stands for the SHA-2 ones and SHA-3 is taken to have
+ * none.
+ */
+
+public final class Digests {
+
+	private static final Map<String, Boolean> INTRINSICS = new ConcurrentHashMap<>();
+
+	private Digests() {
+	}
+
+	/**
+	 * Creates a digest for a hash algorithm.
+	 *
+	 * @param hashAlgorithm the hash algorithm. Possible values: "SHA2256",
+	 *                      "SHA2512", "SHA3256", "SHA3512", "BLAKE2B", "BLAKE3".
+	 * @return a digest in its initial state
+	 * @throws IllegalArgumentException if the hash algorithm is not one of these
+	 */
+	public static Digest create(String hashAlgorithm) {
+		switch (hashAlgorithm.toUpperCase()) {
+		case "SHA2256":
+			return create("SHA-256", 64, "UseSHA256Intrinsics", "UseSHA", SHA256Digest::new);
+		case "SHA2512":
+			return create("SHA-512", 128, "UseSHA512Intrinsics", "UseSHA", SHA512Digest::new);
+		case "SHA3256":
+			return create("SHA3-256", 136, "UseSHA3Intrinsics", null, () -> new SHA3Digest(256));
+		case "SHA3512":
+			return create("SHA3-512", 72, "UseSHA3Intrinsics", null, () -> new SHA3Digest(512));
+		case "BLAKE2B":
+			return new Blake2bDigest(512);
+		case "BLAKE3":
+			return new ParallelBlake3Digest();
+		default:
+			throw new IllegalArgumentException("Invalid hash algorithm!");
+		}
+	}
+
+	/**
+	 * Creates a digest of the Java platform if its intrinsics are on, or the
+	 * fallback otherwise or if the platform does not provide the algorithm.
+	 */
+	private static Digest create(String algorithm, int byteLength, String intrinsics, String general,
+			Supplier<Digest> fallback) {
+		if (!INTRINSICS.computeIfAbsent(intrinsics, option -> isOn(option, general))) {
+			return fallback.get();
+		}
+		try {
+			return new JCADigest(algorithm, byteLength);
+		} catch (NoSuchAlgorithmException e) {
+			return fallback.get();
+		}
+	}
+
+	/**
+	 * Reads a boolean option of the HotSpot VM.
+	 *
+	 * @param option  the name of the option
+	 * @param general the option to read if the VM does not show the first, or
+	 *                null
+	 * @return the value of the option, or false if the VM has neither
+	 */
+	private static boolean isOn(String option, String general) {
+		try {
+			HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+			try {
+				return Boolean.parseBoolean(bean.getVMOption(option).getValue());
+			} catch (IllegalArgumentException e) { // a locked diagnostic option
+				return general != null && Boolean.parseBoolean(bean.getVMOption(general).getValue());
+			}
+		} catch (RuntimeException | LinkageError e) { // not HotSpot
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,95 @@
+package hash;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.bouncycastle.crypto.ExtendedDigest;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The JCADigest class adapts a java.security.MessageDigest to the Bouncy Castle
+ * Digest interface, so the MTSS and the CDSS signers can hash through the Java
+ * platform. The SHA-2 and SHA-3 implementations of the platform are compiled by
+ * HotSpot with intrinsic compression functions where the processor has them
+ * (SHA-NI on x86, the SHA extensions on ARMv8), which the pure-Java digests of
+ * Bouncy Castle cannot use. The hashes are the same either way.
+ *
+ * @field digest The MessageDigest doing the hashing.
+ * @field algorithmName The name of the algorithm, as Bouncy Castle names it.
+ * @field byteLength The size of the internal block of the algorithm in bytes.
+ */
+
+public class JCADigest implements ExtendedDigest {
+
+	private MessageDigest digest;
+	private String algorithmName;
+	private int byteLength;
+
+	// Constructor
+	public JCADigest(String algorithm, int byteLength) throws NoSuchAlgorithmException {
+		this.digest = MessageDigest.getInstance(algorithm);
+		this.algorithmName = algorithm;
+		this.byteLength = byteLength;
+	}
+
+	@Override
+	public String getAlgorithmName() {
+		return algorithmName;
+	}
+
+	@Override
+	public int getDigestSize() {
+		return digest.getDigestLength();
+	}
+
+	@Override
+	public int getByteLength() {
+		return byteLength;
+	}
+
+	@Override
+	public void update(byte in) {
+		digest.update(in);
+	}
+
+	@Override
+	public void update(byte[] in, int inOff, int len) {
+		digest.update(in, inOff, len);
+	}
+
+	@Override
+	public int doFinal(byte[] out, int outOff) {
+		try {
+			return digest.digest(out, outOff, digest.getDigestLength()); // also resets the digest
+		} catch (DigestException e) {
+			throw new IllegalArgumentException("Output buffer too short.", e);
+		}
+	}
+
+	@Override
+	public void reset() {
+		digest.reset();
+	}
+
+}
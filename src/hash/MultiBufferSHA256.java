@@ -0,0 +1,103 @@
+package hash;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The MultiBufferSHA256 class hashes several messages of similar lengths with
+ * SHA-256 in lockstep, one in each SIMD lane, with the Vector API
+ * (VectorSHA256). It is usable when the jdk.incubator.vector module is present
+ * (java --add-modules jdk.incubator.vector), the preferred vector species has at
+ * least 4 lanes, and HotSpot has no SHA-256 intrinsics: with SHA-NI, a single
+ * stream through JCADigest is faster. Otherwise the vector classes are never
+ * loaded, and the messages are hashed one at a time as before.
+ *
+ * @field LANES The number of messages hashed at once, or 0 if multi-buffer
+ *        hashing is not usable.
+ */
+
+public final class MultiBufferSHA256 {
+
+	private static final int LANES = lanes();
+
+	private MultiBufferSHA256() {
+	}
+
+	/**
+	 * Returns the number of messages hashed at once.
+	 *
+	 * @return the number of lanes, or 0 if multi-buffer hashing is not usable
+	 */
+	public static int getLanes() {
+		return LANES;
+	}
+
+	/**
+	 * Checks whether messages should be hashed in lockstep: the algorithm is
+	 * SHA-256, and there are at least as many messages as lanes.
+	 *
+	 * @param hashAlgorithm the name of the hash algorithm
+	 * @param messages      the number of messages to hash
+	 * @return true if the messages should be hashed by this class
+	 */
+	public static boolean isUsable(String hashAlgorithm, int messages) {
+		return LANES > 0 && messages >= LANES && "SHA2256".equalsIgnoreCase(hashAlgorithm);
+	}
+
+	/**
+	 * Hashes messages with SHA-256, as many at once as there are lanes.
+	 *
+	 * @param messages the messages, each passed as read-only views of its bytes
+	 *                 in order, which must stay valid until the message is
+	 *                 hashed; the views are left unchanged
+	 * @return the hash of each message, in the order of the messages
+	 * @throws IllegalStateException if multi-buffer hashing is not usable
+	 */
+	public static byte[][] hash(List<Iterator<ByteBuffer>> messages) {
+		if (LANES == 0) {
+			throw new IllegalStateException("Multi-buffer SHA-256 needs the jdk.incubator.vector module.");
+		}
+		return new VectorSHA256().hash(messages);
+	}
+
+	/**
+	 * Finds the number of lanes, without loading the vector classes unless their
+	 * module is present.
+	 */
+	private static int lanes() {
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+			return 0;
+		}
+		if (Digests.create("SHA2256") instanceof JCADigest) { // HotSpot has SHA-256 intrinsics
+			return 0;
+		}
+		try {
+			return VectorSHA256.LANES >= 4 ? VectorSHA256.LANES : 0;
+		} catch (LinkageError e) {
+			return 0;
+		}
+	}
+
+}
@@ -0,0 +1,335 @@
+package hash;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.bouncycastle.crypto.ExtendedDigest;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The ParallelBlake3Digest class computes BLAKE3 hashes, with 256-bit output,
+ * using several cores for long inputs. BLAKE3 hashes its input as a binary tree:
+ * each 1 KB chunk is compressed into a chaining value, and pairs of chaining
+ * values are compressed into their parent's, up to the root. Every aligned run
+ * of SUBTREE_CHUNKS chunks followed by more input is a complete subtree, whose
+ * chaining value does not depend on the rest of the input, so the subtrees of a
+ * long update are hashed in parallel on the common ForkJoin pool and then
+ * merged in order. The rest of the input is hashed one chunk at a time, as in
+ * the reference implementation. The hashes are those of serial BLAKE3.
+ *
+ * Buffers are hashed where they are, so a mapped file is hashed in parallel
+ * without being copied to an array first.
+ *
+ * @field chunkCV The chaining value of the chunk being hashed.
+ * @field chunkCounter The index of the chunk being hashed.
+ * @field block The block of the chunk not yet compressed.
+ * @field blockLength The number of bytes in the block.
+ * @field blocksCompressed The number of blocks of the chunk compressed.
+ * @field stack The chaining values of the complete subtrees not yet merged,
+ *        largest first.
+ * @field stackSize The number of chaining values on the stack.
+ */
+
+public class ParallelBlake3Digest implements ExtendedDigest {
+
+	static final int CHUNK_LEN = 1024;
+	static final int BLOCK_LEN = 64;
+	static final int SUBTREE_CHUNKS = 64; // the chunks of a subtree hashed as one task
+	static final int SUBTREE_LEN = SUBTREE_CHUNKS * CHUNK_LEN;
+	static final int MAX_SUBTREES = 4096; // hashed in one parallel batch
+
+	private static final int CHUNK_START = 1;
+	private static final int CHUNK_END = 2;
+	private static final int PARENT = 4;
+	private static final int ROOT = 8;
+
+	private static final int[] IV = { 0x6A09E667, 0xBB67AE85, 0x3C6EF372, 0xA54FF53A, 0x510E527F, 0x9B05688C,
+			0x1F83D9AB, 0x5BE0CD19 };
+	private static final int[] PERMUTATION = { 2, 6, 3, 10, 7, 0, 4, 13, 1, 11, 12, 5, 9, 14, 15, 8 };
+	private static final int[][] SCHEDULE = new int[7][16]; // the message words used by each round
+
+	static {
+		for (int i = 0; i < 16; i++) {
+			SCHEDULE[0][i] = i;
+		}
+		for (int r = 1; r < 7; r++) {
+			for (int i = 0; i < 16; i++) {
+				SCHEDULE[r][i] = SCHEDULE[r - 1][PERMUTATION[i]];
+			}
+		}
+	}
+
+	private int[] chunkCV = IV.clone();
+	private long chunkCounter;
+	private byte[] block = new byte[BLOCK_LEN];
+	private int blockLength;
+	private int blocksCompressed;
+	private int[][] stack = new int[54][]; // enough for 2^64 bytes
+	private int stackSize;
+
+	// scratch space of the serial hashing
+	private int[] words = new int[16];
+	private int[] state = new int[16];
+
+	@Override
+	public String getAlgorithmName() {
+		return "BLAKE3";
+	}
+
+	@Override
+	public int getDigestSize() {
+		return 32;
+	}
+
+	@Override
+	public int getByteLength() {
+		return BLOCK_LEN;
+	}
+
+	@Override
+	public void update(byte in) {
+		update(new byte[] { in }, 0, 1);
+	}
+
+	@Override
+	public void update(byte[] in, int inOff, int len) {
+		update(ByteBuffer.wrap(in, inOff, len));
+	}
+
+	/**
+	 * Feeds the remaining bytes of a buffer, leaving its position unchanged.
+	 *
+	 * @param buffer the bytes to feed
+	 */
+	public void update(ByteBuffer buffer) {
+		ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int position = in.position();
+		int limit = in.limit();
+		while (position < limit) {
+			if (blocksCompressed == CHUNK_LEN / BLOCK_LEN - 1 && blockLength == BLOCK_LEN) {
+				finishChunk(); // the chunk is full, and more input follows
+			}
+			if (blocksCompressed == 0 && blockLength == 0 && chunkCounter % SUBTREE_CHUNKS == 0
+					&& limit - position > SUBTREE_LEN) {
+				position += hashSubtrees(in, position, limit);
+				continue;
+			}
+			if (blockLength == BLOCK_LEN) {
+				load(block, words);
+				compress(chunkCV, words, chunkCounter, BLOCK_LEN, blocksCompressed == 0 ? CHUNK_START : 0, state);
+				System.arraycopy(state, 0, chunkCV, 0, 8);
+				blocksCompressed++;
+				blockLength = 0;
+			}
+			int length = Math.min(BLOCK_LEN - blockLength, limit - position);
+			in.get(position, block, blockLength, length);
+			blockLength += length;
+			position += length;
+		}
+	}
+
+	/**
+	 * Hashes the complete subtrees at the start of the input in parallel, keeping
+	 * at least one byte for the chunks after them, and pushes their chaining
+	 * values.
+	 *
+	 * @return the number of bytes hashed
+	 */
+	private int hashSubtrees(ByteBuffer in, int position, int limit) {
+		int subtrees = Math.min(MAX_SUBTREES, (limit - position - 1) / SUBTREE_LEN);
+		long counter = chunkCounter;
+		int[][] cvs = new int[subtrees][];
+		if (subtrees == 1) {
+			cvs[0] = subtreeCV(in, position, counter);
+		} else {
+			IntStream.range(0, subtrees).parallel()
+					.forEach(i -> cvs[i] = subtreeCV(in, position + i * SUBTREE_LEN, counter + i * SUBTREE_CHUNKS));
+		}
+		for (int i = 0; i < subtrees; i++) {
+			push(cvs[i], counter / SUBTREE_CHUNKS + i + 1);
+		}
+		chunkCounter = counter + (long) subtrees * SUBTREE_CHUNKS;
+		return subtrees * SUBTREE_LEN;
+	}
+
+	/**
+	 * Compresses the last block of the full chunk, pushes its chaining value and
+	 * starts the next chunk.
+	 */
+	private void finishChunk() {
+		load(block, words);
+		compress(chunkCV, words, chunkCounter, BLOCK_LEN, CHUNK_END, state);
+		push(Arrays.copyOf(state, 8), chunkCounter + 1);
+		chunkCounter++;
+		chunkCV = IV.clone();
+		blocksCompressed = 0;
+		blockLength = 0;
+	}
+
+	/**
+	 * Pushes the chaining value of a complete subtree, merging it with the
+	 * subtrees of its size before it, as many times as the number of subtrees
+	 * hashed so far is divisible by 2.
+	 *
+	 * @param cv    the chaining value
+	 * @param total the number of subtrees of its size hashed so far, including
+	 *              it
+	 */
+	private void push(int[] cv, long total) {
+		while ((total & 1) == 0) {
+			cv = parentCV(stack[--stackSize], cv, 0, words, state);
+			total >>= 1;
+		}
+		stack[stackSize++] = cv;
+	}
+
+	@Override
+	public int doFinal(byte[] out, int outOff) {
+		Arrays.fill(block, blockLength, BLOCK_LEN, (byte) 0);
+		load(block, words);
+		int flags = CHUNK_END | (blocksCompressed == 0 ? CHUNK_START : 0);
+		if (stackSize == 0) { // the chunk is the root
+			compress(chunkCV, words, chunkCounter, blockLength, flags | ROOT, state);
+		} else {
+			compress(chunkCV, words, chunkCounter, blockLength, flags, state);
+			int[] cv = Arrays.copyOf(state, 8);
+			for (int i = stackSize - 1; i > 0; i--) {
+				cv = parentCV(stack[i], cv, 0, words, state);
+			}
+			parentCV(stack[0], cv, ROOT, words, state);
+		}
+		for (int i = 0; i < 8; i++) {
+			int word = state[i];
+			for (int j = 0; j < 4; j++) {
+				out[outOff + 4 * i + j] = (byte) (word >>> (8 * j));
+			}
+		}
+		reset();
+		return 32;
+	}
+
+	@Override
+	public void reset() {
+		chunkCV = IV.clone();
+		chunkCounter = 0;
+		blockLength = 0;
+		blocksCompressed = 0;
+		Arrays.fill(stack, 0, stackSize, null);
+		stackSize = 0;
+	}
+
+	/**
+	 * Computes the chaining value of a complete subtree of SUBTREE_CHUNKS chunks.
+	 *
+	 * @param in      the input, in little-endian order
+	 * @param offset  the index of the first byte of the subtree
+	 * @param counter the index of the first chunk of the subtree
+	 * @return the chaining value
+	 */
+	static int[] subtreeCV(ByteBuffer in, int offset, long counter) {
+		int[] m = new int[16];
+		int[] v = new int[16];
+		int[][] cvs = new int[SUBTREE_CHUNKS][];
+		for (int c = 0; c < SUBTREE_CHUNKS; c++) {
+			int[] cv = IV.clone();
+			for (int b = 0; b < CHUNK_LEN / BLOCK_LEN; b++) {
+				int start = offset + c * CHUNK_LEN + b * BLOCK_LEN;
+				for (int i = 0; i < 16; i++) {
+					m[i] = in.getInt(start + 4 * i);
+				}
+				int flags = (b == 0 ? CHUNK_START : 0) | (b == CHUNK_LEN / BLOCK_LEN - 1 ? CHUNK_END : 0);
+				compress(cv, m, counter + c, BLOCK_LEN, flags, v);
+				System.arraycopy(v, 0, cv, 0, 8);
+			}
+			cvs[c] = cv;
+		}
+		for (int width = SUBTREE_CHUNKS; width > 1; width /= 2) { // merge the levels up to the subtree root
+			for (int i = 0; i < width / 2; i++) {
+				cvs[i] = parentCV(cvs[2 * i], cvs[2 * i + 1], 0, m, v);
+			}
+		}
+		return cvs[0];
+	}
+
+	/**
+	 * Compresses two chaining values into their parent's. With the ROOT flag, the
+	 * output is left in the first words of the state.
+	 */
+	private static int[] parentCV(int[] left, int[] right, int flags, int[] m, int[] v) {
+		System.arraycopy(left, 0, m, 0, 8);
+		System.arraycopy(right, 0, m, 8, 8);
+		compress(IV, m, 0, BLOCK_LEN, PARENT | flags, v);
+		return Arrays.copyOf(v, 8);
+	}
+
+	/**
+	 * Reads the 16 little-endian message words of a block.
+	 */
+	private static void load(byte[] block, int[] m) {
+		for (int i = 0; i < 16; i++) {
+			m[i] = (block[4 * i] & 0xFF) | (block[4 * i + 1] & 0xFF) << 8 | (block[4 * i + 2] & 0xFF) << 16
+					| (block[4 * i + 3] & 0xFF) << 24;
+		}
+	}
+
+	/**
+	 * The BLAKE3 compression function. The first 8 words of v receive the new
+	 * chaining value, and the last 8 the rest of the extended output.
+	 */
+	private static void compress(int[] cv, int[] m, long counter, int blockLength, int flags, int[] v) {
+		System.arraycopy(cv, 0, v, 0, 8);
+		System.arraycopy(IV, 0, v, 8, 4);
+		v[12] = (int) counter;
+		v[13] = (int) (counter >>> 32);
+		v[14] = blockLength;
+		v[15] = flags;
+		for (int[] s : SCHEDULE) {
+			g(v, 0, 4, 8, 12, m[s[0]], m[s[1]]);
+			g(v, 1, 5, 9, 13, m[s[2]], m[s[3]]);
+			g(v, 2, 6, 10, 14, m[s[4]], m[s[5]]);
+			g(v, 3, 7, 11, 15, m[s[6]], m[s[7]]);
+			g(v, 0, 5, 10, 15, m[s[8]], m[s[9]]);
+			g(v, 1, 6, 11, 12, m[s[10]], m[s[11]]);
+			g(v, 2, 7, 8, 13, m[s[12]], m[s[13]]);
+			g(v, 3, 4, 9, 14, m[s[14]], m[s[15]]);
+		}
+		for (int i = 0; i < 8; i++) {
+			v[i] ^= v[i + 8];
+			v[i + 8] ^= cv[i];
+		}
+	}
+
+	private static void g(int[] v, int a, int b, int c, int d, int x, int y) {
+		v[a] += v[b] + x;
+		v[d] = Integer.rotateRight(v[d] ^ v[a], 16);
+		v[c] += v[d];
+		v[b] = Integer.rotateRight(v[b] ^ v[c], 12);
+		v[a] += v[b] + y;
+		v[d] = Integer.rotateRight(v[d] ^ v[a], 8);
+		v[c] += v[d];
+		v[b] = Integer.rotateRight(v[b] ^ v[c], 7);
+	}
+
+}
@@ -0,0 +1,265 @@
+package hash;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The VectorSHA256 class hashes several messages with SHA-256 at once, one in
+ * each lane of the preferred vector species (4 lanes of 128 bits, 8 of 256 bits
+ * or 16 of 512 bits). Every round of the compression function is computed for
+ * all the lanes by the same vector instructions, so the messages advance in
+ * lockstep, one 64-byte block each per compression. When the message of a lane
+ * is done, the next message waiting starts in that lane; a lane with no message
+ * left hashes nothing of use until the others are done. This class needs the
+ * jdk.incubator.vector module, and is only reached through MultiBufferSHA256.
+ *
+ * @field lanes The messages being hashed, one per lane.
+ * @field state The working state of every lane; word k of lane l is at
+ *        k * LANES + l.
+ * @field schedule The message schedule of every lane, laid out as the state;
+ *        its first 16 words are those of the block being hashed.
+ * @field block The bytes of a block being padded.
+ */
+
+final class VectorSHA256 {
+
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+	static final int LANES = SPECIES.length();
+
+	private static final int[] IV = { 0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c,
+			0x1f83d9ab, 0x5be0cd19 };
+
+	private static final int[] K = { 0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1,
+			0x923f82a4, 0xab1c5ed5, 0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe,
+			0x9bdc06a7, 0xc19bf174, 0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa,
+			0x5cb0a9dc, 0x76f988da, 0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147,
+			0x06ca6351, 0x14292967, 0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb,
+			0x81c2c92e, 0x92722c85, 0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624,
+			0xf40e3585, 0x106aa070, 0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a,
+			0x5b9cca4f, 0x682e6ff3, 0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb,
+			0xbef9a3f7, 0xc67178f2 };
+
+	private Lane[] lanes = new Lane[LANES];
+	private int[] state = new int[8 * LANES];
+	private int[] schedule = new int[64 * LANES];
+	private byte[] block = new byte[64];
+
+	/**
+	 * Hashes messages with SHA-256, as many at once as there are lanes.
+	 *
+	 * @param messages the messages, each passed as read-only views of its bytes
+	 *                 in order; the views are read through slices, so they are
+	 *                 left unchanged
+	 * @return the hash of each message, in the order of the messages
+	 */
+	byte[][] hash(List<Iterator<ByteBuffer>> messages) {
+		byte[][] hashes = new byte[messages.size()][];
+		int next = 0;
+		int active = 0;
+		for (int l = 0; l < LANES; l++) {
+			lanes[l] = new Lane();
+			if (next < messages.size()) {
+				start(l, next, messages.get(next++));
+				active++;
+			}
+		}
+
+		while (active > 0) {
+			for (int l = 0; l < LANES; l++) {
+				if (lanes[l].message >= 0) {
+					load(l);
+				}
+			}
+			compress();
+			for (int l = 0; l < LANES; l++) {
+				Lane lane = lanes[l];
+				if (lane.message < 0 || !lane.finished) {
+					continue;
+				}
+				hashes[lane.message] = output(l);
+				if (next < messages.size()) {
+					start(l, next, messages.get(next++));
+				} else {
+					lane.message = -1;
+					active--;
+				}
+			}
+		}
+		return hashes;
+	}
+
+	/**
+	 * Starts hashing a message in a lane.
+	 */
+	private void start(int l, int message, Iterator<ByteBuffer> segments) {
+		Lane lane = lanes[l];
+		lane.message = message;
+		lane.segments = segments;
+		lane.segment = null;
+		lane.length = 0;
+		lane.padded = false;
+		lane.finished = false;
+		for (int k = 0; k < 8; k++) {
+			state[k * LANES + l] = IV[k];
+		}
+	}
+
+	/**
+	 * Loads the next block of the message of a lane into the schedule, padding
+	 * the message at its end.
+	 */
+	private void load(int l) {
+		Lane lane = lanes[l];
+		int filled = 0;
+		while (filled < 64 && !lane.padded) {
+			ByteBuffer segment = lane.segment;
+			if (segment == null || !segment.hasRemaining()) {
+				if (lane.segments.hasNext()) {
+					lane.segment = lane.segments.next().slice().order(ByteOrder.BIG_ENDIAN);
+				} else {
+					block[filled++] = (byte) 0x80;
+					lane.padded = true;
+				}
+				continue;
+			}
+			int position = segment.position();
+			if (filled == 0 && segment.remaining() >= 64) { // a whole block, read in place
+				for (int t = 0; t < 16; t++) {
+					schedule[t * LANES + l] = segment.getInt(position + 4 * t);
+				}
+				segment.position(position + 64);
+				lane.length += 64;
+				return;
+			}
+			int count = Math.min(64 - filled, segment.remaining());
+			segment.get(block, filled, count);
+			filled += count;
+			lane.length += count;
+		}
+		if (lane.padded) {
+			Arrays.fill(block, filled, 64, (byte) 0);
+			if (filled <= 56) { // room for the length in bits
+				long bits = lane.length << 3;
+				for (int i = 0; i < 8; i++) {
+					block[63 - i] = (byte) (bits >>> (8 * i));
+				}
+				lane.finished = true;
+			}
+		}
+		for (int t = 0; t < 16; t++) {
+			schedule[t * LANES + l] = (block[4 * t] << 24) | ((block[4 * t + 1] & 0xFF) << 16)
+					| ((block[4 * t + 2] & 0xFF) << 8) | (block[4 * t + 3] & 0xFF);
+		}
+	}
+
+	/**
+	 * Applies the compression function of SHA-256 to the block of every lane.
+	 */
+	private void compress() {
+		for (int t = 16; t < 64; t++) {
+			IntVector w2 = IntVector.fromArray(SPECIES, schedule, (t - 2) * LANES);
+			IntVector w15 = IntVector.fromArray(SPECIES, schedule, (t - 15) * LANES);
+			IntVector s0 = w15.lanewise(VectorOperators.ROR, 7).lanewise(VectorOperators.XOR,
+					w15.lanewise(VectorOperators.ROR, 18)).lanewise(VectorOperators.XOR,
+							w15.lanewise(VectorOperators.LSHR, 3));
+			IntVector s1 = w2.lanewise(VectorOperators.ROR, 17).lanewise(VectorOperators.XOR,
+					w2.lanewise(VectorOperators.ROR, 19)).lanewise(VectorOperators.XOR,
+							w2.lanewise(VectorOperators.LSHR, 10));
+			IntVector.fromArray(SPECIES, schedule, (t - 16) * LANES).add(s0)
+					.add(IntVector.fromArray(SPECIES, schedule, (t - 7) * LANES)).add(s1)
+					.intoArray(schedule, t * LANES);
+		}
+
+		IntVector a = IntVector.fromArray(SPECIES, state, 0);
+		IntVector b = IntVector.fromArray(SPECIES, state, LANES);
+		IntVector c = IntVector.fromArray(SPECIES, state, 2 * LANES);
+		IntVector d = IntVector.fromArray(SPECIES, state, 3 * LANES);
+		IntVector e = IntVector.fromArray(SPECIES, state, 4 * LANES);
+		IntVector f = IntVector.fromArray(SPECIES, state, 5 * LANES);
+		IntVector g = IntVector.fromArray(SPECIES, state, 6 * LANES);
+		IntVector h = IntVector.fromArray(SPECIES, state, 7 * LANES);
+		for (int t = 0; t < 64; t++) {
+			IntVector sum1 = e.lanewise(VectorOperators.ROR, 6).lanewise(VectorOperators.XOR,
+					e.lanewise(VectorOperators.ROR, 11)).lanewise(VectorOperators.XOR,
+							e.lanewise(VectorOperators.ROR, 25));
+			IntVector choice = g.lanewise(VectorOperators.XOR, e.and(f.lanewise(VectorOperators.XOR, g)));
+			IntVector t1 = h.add(sum1).add(choice).add(K[t])
+					.add(IntVector.fromArray(SPECIES, schedule, t * LANES));
+			IntVector sum0 = a.lanewise(VectorOperators.ROR, 2).lanewise(VectorOperators.XOR,
+					a.lanewise(VectorOperators.ROR, 13)).lanewise(VectorOperators.XOR,
+							a.lanewise(VectorOperators.ROR, 22));
+			IntVector majority = a.and(b).or(c.and(a.or(b)));
+			h = g;
+			g = f;
+			f = e;
+			e = d.add(t1);
+			d = c;
+			c = b;
+			b = a;
+			a = t1.add(sum0).add(majority);
+		}
+		a.add(IntVector.fromArray(SPECIES, state, 0)).intoArray(state, 0);
+		b.add(IntVector.fromArray(SPECIES, state, LANES)).intoArray(state, LANES);
+		c.add(IntVector.fromArray(SPECIES, state, 2 * LANES)).intoArray(state, 2 * LANES);
+		d.add(IntVector.fromArray(SPECIES, state, 3 * LANES)).intoArray(state, 3 * LANES);
+		e.add(IntVector.fromArray(SPECIES, state, 4 * LANES)).intoArray(state, 4 * LANES);
+		f.add(IntVector.fromArray(SPECIES, state, 5 * LANES)).intoArray(state, 5 * LANES);
+		g.add(IntVector.fromArray(SPECIES, state, 6 * LANES)).intoArray(state, 6 * LANES);
+		h.add(IntVector.fromArray(SPECIES, state, 7 * LANES)).intoArray(state, 7 * LANES);
+	}
+
+	/**
+	 * Returns the hash held in the state of a lane.
+	 */
+	private byte[] output(int l) {
+		byte[] hash = new byte[32];
+		for (int k = 0; k < 8; k++) {
+			int word = state[k * LANES + l];
+			hash[4 * k] = (byte) (word >>> 24);
+			hash[4 * k + 1] = (byte) (word >>> 16);
+			hash[4 * k + 2] = (byte) (word >>> 8);
+			hash[4 * k + 3] = (byte) word;
+		}
+		return hash;
+	}
+
+	/**
+	 * The Lane class holds the progress of the message hashed in a lane.
+	 */
+	private static class Lane {
+		private int message = -1; // the index of the message, or -1 if the lane is idle
+		private Iterator<ByteBuffer> segments;
+		private ByteBuffer segment;
+		private long length;
+		private boolean padded; // whether the 0x80 byte ending the message was loaded
+		private boolean finished; // whether the length was loaded, so the hash is ready
+	}
+}
@@ -0,0 +1,250 @@
+package mtss;
+
+import cff.CFFConstruction;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The BlockPlanner class chooses the number of blocks n of a message from a
+ * cost model, instead of a guessed block size. The number of blocks fixes the
+ * number of rows t of the CFF, through the construction method, and with it
+ * the size of the MTSS signature and the number of bytes hashed: each block is
+ * hashed once per row containing it, plus once for the whole message.
+ *
+ * The estimated signing time, in bytes hashed, is S * (w + 1) for a message of
+ * S bytes whose blocks are each in w rows, plus a fixed overhead for each
+ * block of each row and for each row. In the "blockdigest" mode, the message is
+ * hashed once, and each block adds its digest to w + 1 digests instead. The
+ * estimated signature size is that of the t + 1 hexadecimal hashes plus the
+ * CDSS signature. Both are normalized by their value for the fewest blocks
+ * allowed, and the plan is the largest n whose summed cost is within TOLERANCE
+ * of the cheapest: since a CFF of t rows holds many n, the finest blocks often
+ * come for free.
+ *
+ * Both costs only grow with n past the fewest blocks allowed, so the
+ * localization granularity is what asks for more: the fewest blocks follow from
+ * the largest block size in bytes, DEFAULT_MAX_BLOCK_BYTES unless given, and
+ * from the construction method. The blocks are kept to MIN_BLOCK_BYTES bytes or
+ * more on average.
+ *
+ * @field CFFMethod The construction method of the CFF.
+ * @field d The number of defectives.
+ * @field mode The signature mode.
+ * @field digestSize The size of the hashes in bytes.
+ * @field signatureSize The size of the CDSS signature in bytes.
+ * @field rows The number of rows of the last plan.
+ * @field hashedBytes The estimated number of bytes hashed for the last plan.
+ * @field estimatedSize The estimated size of the MTSS signature of the last
+ *        plan, in bytes.
+ */
+
+public class BlockPlanner {
+
+	static final double TOLERANCE = 0.02;
+	static final long MIN_BLOCK_BYTES = 64;
+	static final long DEFAULT_MAX_BLOCK_BYTES = 1 << 20;
+	static final int MAX_BLOCKS = 1 << 24;
+
+	// Overheads, in bytes hashed that would take as long
+	private static final long BLOCK_OVERHEAD = 256; // feeding one block to one row
+	private static final long ROW_OVERHEAD = 1024; // one row digest
+	private static final long HEADER_SIZE = 256; // the parameters of the signature
+
+	private String CFFMethod;
+	private int d;
+	private String mode;
+	private CFFConstruction construction;
+	private int digestSize;
+	private int signatureSize;
+	private int rows;
+	private long hashedBytes;
+	private long estimatedSize;
+
+	// Constructor
+	public BlockPlanner(String CDSSType, String hashAlgorithm, String CFFMethod, int d) {
+		this(CDSSType, hashAlgorithm, CFFMethod, d, "rows");
+	}
+
+	// Constructor: for a signature mode
+	public BlockPlanner(String CDSSType, String hashAlgorithm, String CFFMethod, int d, String mode) {
+		this.CFFMethod = CFFMethod;
+		this.mode = mode;
+		this.d = d;
+		this.construction = new Factory().createCFFConstruction(CFFMethod);
+		this.digestSize = MTSSMethods.createHash(hashAlgorithm).getDigestSize();
+		this.signatureSize = signatureSize(CDSSType);
+	}
+
+	/**
+	 * Plans the number of blocks of a message and returns the specification
+	 * dividing it into that many blocks.
+	 *
+	 * @param spec          the specification to plan for; its block choice and
+	 *                      number are replaced
+	 * @param messageSize   the size of the message in bytes
+	 * @param maxBlockBytes the largest block size in bytes, or 0 for the default
+	 * @return a specification fixing the planned number of blocks
+	 */
+	public Specification plan(Specification spec, long messageSize, long maxBlockBytes) {
+		int n = plan(messageSize, maxBlockBytes);
+		return new Specification(spec.getCDSSType(), spec.getHashType(), spec.getD(), spec.getCFFMethod(),
+				spec.getCFFMatrixType(), spec.getFileType(), 1, n, spec.getParameters(), spec.getMode());
+	}
+
+	/**
+	 * Plans the number of blocks of a message.
+	 *
+	 * @param messageSize   the size of the message in bytes
+	 * @param maxBlockBytes the largest block size in bytes, or 0 for the default
+	 * @return the number of blocks
+	 */
+	public int plan(long messageSize, long maxBlockBytes) {
+		if (maxBlockBytes <= 0) {
+			maxBlockBytes = DEFAULT_MAX_BLOCK_BYTES;
+		}
+		int least = CFFMethod.equalsIgnoreCase("sts") ? 7 : d + 1;
+		least = (int) Math.max(least, Math.min(MAX_BLOCKS, (messageSize + maxBlockBytes - 1) / maxBlockBytes));
+		int most = (int) Math.max(least, Math.min(MAX_BLOCKS, messageSize / MIN_BLOCK_BYTES));
+
+		double baseTime = time(messageSize, least);
+		double baseSize = size(least);
+		double bound = 2 * (1 + TOLERANCE); // the cost of the fewest blocks is 2
+
+		// Walk the CFFs by number of rows, keeping the last n within the bound
+		int best = least;
+		int n = least;
+		while (n <= most && cost(messageSize, n, baseTime, baseSize) <= bound) {
+			int t = construction.rows(d, n);
+			int last = lastWithRows(t, n, most); // the largest n with t rows
+			// Within t rows, the cost only grows with the block overheads
+			int low = n;
+			int high = last;
+			while (low < high) {
+				int middle = (int) (((long) low + high + 1) >>> 1);
+				if (cost(messageSize, middle, baseTime, baseSize) <= bound) {
+					low = middle;
+				} else {
+					high = middle - 1;
+				}
+			}
+			best = low;
+			if (low < last || last == most) {
+				break;
+			}
+			n = last + 1;
+		}
+
+		rows = construction.rows(d, best);
+		int w = construction.weight(d, best);
+		hashedBytes = mode.equals("blockdigest") ? messageSize + (long) best * (w + 1) * digestSize
+				: messageSize * (w + 1);
+		estimatedSize = (long) size(best);
+		return best;
+	}
+
+	/**
+	 * Finds the largest number of blocks, up to most, whose CFF has t rows,
+	 * given that the CFF of n blocks has t rows.
+	 */
+	private int lastWithRows(int t, int n, int most) {
+		int step = 1;
+		int low = n;
+		int high = n;
+		while (high < most && construction.rows(d, high) == t) { // gallop past it
+			low = high;
+			high = (int) Math.min(most, (long) high + step);
+			step *= 2;
+		}
+		if (construction.rows(d, high) == t) {
+			return high;
+		}
+		while (low + 1 < high) {
+			int middle = (int) (((long) low + high) >>> 1);
+			if (construction.rows(d, middle) == t) {
+				low = middle;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private double cost(long messageSize, int n, double baseTime, double baseSize) {
+		return time(messageSize, n) / baseTime + size(n) / baseSize;
+	}
+
+	/**
+	 * Estimates the signing time, in bytes hashed.
+	 */
+	private double time(long messageSize, int n) {
+		int t = construction.rows(d, n);
+		int w = construction.weight(d, n);
+		if (mode.equals("blockdigest")) {
+			return messageSize + (double) n * (BLOCK_OVERHEAD + (w + 1) * (digestSize + BLOCK_OVERHEAD))
+					+ (double) t * ROW_OVERHEAD;
+		}
+		return (double) messageSize * (w + 1) + (double) n * w * BLOCK_OVERHEAD + (double) t * ROW_OVERHEAD;
+	}
+
+	/**
+	 * Estimates the size of the MTSS signature in bytes.
+	 */
+	private double size(int n) {
+		int t = construction.rows(d, n);
+		return HEADER_SIZE + 2.0 * ((t + 1) * digestSize + signatureSize); // in hexadecimal
+	}
+
+	/**
+	 * Returns the typical size of a CDSS signature, for the parameters used by
+	 * the cdss package.
+	 */
+	private static int signatureSize(String CDSSType) {
+		switch (CDSSType.toLowerCase()) {
+		case "ecdsa":
+			return 72; // secp256r1, DER encoded
+		case "rsa":
+			return 256; // 2048-bit modulus
+		case "falcon":
+			return 666; // Falcon-512
+		case "dilithium":
+			return 3293; // Dilithium3
+		case "sphincsplus":
+			return 7856; // SHA2-128s
+		default:
+			throw new IllegalArgumentException("Invalid signature scheme!");
+		}
+	}
+
+	// getter methods
+	public int getRows() {
+		return rows;
+	}
+
+	public long getHashedBytes() {
+		return hashedBytes;
+	}
+
+	public long getEstimatedSize() {
+		return estimatedSize;
+	}
+
+}
@@ -1,9 +1,21 @@
 package mtss;
 
+import java.io.IOException;
+
+import block.BlockAudio;
+import block.BlockBinary;
+import block.BlockCDC;
+import block.BlockDirectory;
 import block.BlockFile;
 import block.BlockImage;
+import block.BlockIndex;
+import block.BlockRecords;
+import block.BlockStream;
+import block.BlockTar;
+import block.BlockVideo;
 import block.BlockedMessage;
 import block.Blockfy;
+import block.StreamingBlockfy;
 import cff.CFF;
 import cff.CFFCode;
 import cff.CFFConstruction;
@@ -85,20 +97,158 @@ public class Factory {
 		int choice = spec.getChoice();
 		int number = spec.getNumber();
 		String fileType = spec.getFileType();
+		boolean inflate = isInflated(spec);
 
 		// Perform block separation
 		Blockfy blockfy;
 		if (fileType.equalsIgnoreCase("text")) {
-			blockfy = new BlockFile();
+			blockfy = new BlockFile(inflate);
 		} else if (fileType.equalsIgnoreCase("image")) {
-			blockfy = new BlockImage();
+			blockfy = new BlockImage(separateChannels(spec));
+		} else if (fileType.equalsIgnoreCase("binary")) {
+			blockfy = new BlockBinary();
+		} else if (fileType.equalsIgnoreCase("cdc")) {
+			int average = spec.getParameter("avg", 0);
+			blockfy = average == 0 ? new BlockCDC()
+					: new BlockCDC(spec.getParameter("min", Math.max(1, average / 4)), average,
+							spec.getParameter("max", (int) Math.min(Integer.MAX_VALUE, average * 8L)));
+		} else if (fileType.equalsIgnoreCase("video")) {
+			blockfy = new BlockVideo(videoTiles(spec));
+		} else if (fileType.equalsIgnoreCase("audio")) {
+			blockfy = new BlockAudio();
+		} else if (fileType.equalsIgnoreCase("csv") || fileType.equalsIgnoreCase("jsonl")) {
+			blockfy = new BlockRecords(fileType, inflate);
+		} else if (fileType.equalsIgnoreCase("directory")) {
+			String hashType = spec.getHashType();
+			blockfy = new BlockDirectory(() -> MTSSMethods.createHash(hashType));
+		} else if (fileType.equalsIgnoreCase("tar")) {
+			blockfy = new BlockTar(inflate);
 		} else {
-			throw new IllegalArgumentException("Invalid choice. Either text or image");
+			throw new IllegalArgumentException(
+					"Invalid choice. Either text, image, binary, cdc, video, audio, csv, jsonl, directory or tar");
 		}
 		BlockedMessage blockedMessage = blockfy.blockSeparation(file, choice, number);
 		return blockedMessage;
 	}
 
+	/**
+	 * Divides a file into blocks based on the given specification, using its
+	 * sidecar index when the index still matches the file, so the file is not
+	 * scanned for block boundaries again.
+	 *
+	 * @param file      the name of the file to be divided
+	 * @param spec      the specification for block separation, including choice,
+	 *                  number, and file type
+	 * @param indexFile the name of the index file of the file
+	 * @return a BlockedMessage object containing the blocks of the message
+	 * @throws IllegalArgumentException if the file type is not recognized
+	 */
+	public BlockedMessage createBlockedMessage(String file, Specification spec, String indexFile) {
+		if (spec.getChoice() == 0) { // the index is for blocks of a fixed size
+			BlockedMessage blockedMessage = BlockIndex.open(indexFile, file, spec.getFileType(), spec.getNumber(),
+					spec.getParameters());
+			if (blockedMessage != null) {
+				return blockedMessage;
+			}
+		}
+		return createBlockedMessage(file, spec);
+	}
+
+	/**
+	 * Opens a file as a stream of blocks based on the given specification:
+	 * 
+	 * - text, binary, audio, CSV, JSON-lines and tar files are read in large
+	 * sequential chunks;
+	 * - images are read one band of rows at a time, and videos one frame at a
+	 * time;
+	 * - the other types are divided into blocks first and streamed from the
+	 * resulting message.
+	 *
+	 * @param file the name of the file to be divided
+	 * @param spec the specification for block separation, including choice, number,
+	 *             and file type
+	 * @return a BlockStream producing the blocks of the message
+	 * @throws IOException              if an I/O error occurs while opening the
+	 *                                  file
+	 * @throws IllegalArgumentException if the file type is not recognized
+	 */
+	public BlockStream createBlockStream(String file, Specification spec) throws IOException {
+		String fileType = spec.getFileType();
+		boolean inflate = isInflated(spec);
+		StreamingBlockfy blockfy;
+		if (fileType.equalsIgnoreCase("text")) {
+			blockfy = new BlockFile(inflate);
+		} else if (fileType.equalsIgnoreCase("binary")) {
+			blockfy = new BlockBinary();
+		} else if (fileType.equalsIgnoreCase("image")) {
+			blockfy = new BlockImage(separateChannels(spec));
+		} else if (fileType.equalsIgnoreCase("video")) {
+			blockfy = new BlockVideo(videoTiles(spec));
+		} else if (fileType.equalsIgnoreCase("audio")) {
+			blockfy = new BlockAudio();
+		} else if (fileType.equalsIgnoreCase("csv") || fileType.equalsIgnoreCase("jsonl")) {
+			blockfy = new BlockRecords(fileType, inflate);
+		} else if (fileType.equalsIgnoreCase("tar")) {
+			blockfy = new BlockTar(inflate);
+		} else {
+			return createBlockedMessage(file, spec).stream();
+		}
+		return blockfy.openStream(file, spec.getChoice(), spec.getNumber());
+	}
+
+	/**
+	 * Reads the "gzip" parameter of a specification.
+	 *
+	 * @param spec the specification
+	 * @return true if the file is gzip-compressed and divided by its inflated
+	 *         content
+	 * @throws IllegalArgumentException if the parameter is neither "on" nor "off",
+	 *                                  or is "on" for a file type other than
+	 *                                  text, csv, jsonl or tar
+	 */
+	public static boolean isInflated(Specification spec) {
+		String gzip = spec.getParameter("gzip", "off");
+		if (!gzip.equalsIgnoreCase("on") && !gzip.equalsIgnoreCase("off")) {
+			throw new IllegalArgumentException("Invalid choice. Either gzip=on or gzip=off");
+		}
+		if (gzip.equalsIgnoreCase("on") && !spec.getFileType().matches("(?i)text|csv|jsonl|tar")) {
+			throw new IllegalArgumentException("Invalid choice. Only text, csv, jsonl and tar files can be inflated");
+		}
+		return gzip.equalsIgnoreCase("on");
+	}
+
+	/**
+	 * Reads the "channels" parameter of a specification for images.
+	 *
+	 * @param spec the specification
+	 * @return true if each colour channel is divided separately
+	 * @throws IllegalArgumentException if the parameter is neither "interleaved"
+	 *                                  nor "separate"
+	 */
+	private static boolean separateChannels(Specification spec) {
+		String channels = spec.getParameter("channels", "interleaved");
+		if (!channels.equalsIgnoreCase("interleaved") && !channels.equalsIgnoreCase("separate")) {
+			throw new IllegalArgumentException("Invalid choice. Either interleaved or separate channels");
+		}
+		return channels.equalsIgnoreCase("separate");
+	}
+
+	/**
+	 * Reads the "blocks" parameter of a specification for videos.
+	 *
+	 * @param spec the specification
+	 * @return true if the blocks are tiles of the frames
+	 * @throws IllegalArgumentException if the parameter is neither "frames" nor
+	 *                                  "tiles"
+	 */
+	private static boolean videoTiles(Specification spec) {
+		String blocks = spec.getParameter("blocks", "frames");
+		if (!blocks.equalsIgnoreCase("frames") && !blocks.equalsIgnoreCase("tiles")) {
+			throw new IllegalArgumentException("Invalid choice. Either frames or tiles");
+		}
+		return blocks.equalsIgnoreCase("tiles");
+	}
+
 	/**
 	 * Creates a CFF object based on the specified construction method.
 	 *
@@ -6,7 +6,9 @@ import java.util.List;
 
 import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
 
+import block.BlockStream;
 import block.BlockedMessage;
+import block.DirectoryMessage;
 import cdss.CDSS;
 import cdss.KeyPair;
 import cff.CFF;
@@ -93,21 +95,32 @@ public class MTSS {
 	public MTSSignature MTSSign(BlockedMessage blockedMessage, Specification spec, CFF cff,
 			AsymmetricKeyParameter privKey) throws Exception { // block separation and CFF construction are done before.
 
+		return MTSSign(blockedMessage.stream(), spec, cff, privKey);
+	}
+
+	/**
+	 * Signs a message using MTSS, reading its blocks from a stream. Each block is
+	 * hashed as it is read, so the message is never held in memory at once.
+	 * 
+	 * @param stream  the BlockStream producing the blocks of the message.
+	 * @param spec    the Specification object that holds the parameters and
+	 *                settings for MTSS.
+	 * @param cff     the CFF object representing the combinatorial group testing
+	 *                configuration.
+	 * @param privKey the private key used for signing the message.
+	 * @return a MTSSignature object representing the resulting MTSS signature.
+	 * @throws Exception if an error occurs during the signing process.
+	 */
+	public MTSSignature MTSSign(BlockStream stream, Specification spec, CFF cff, AsymmetricKeyParameter privKey)
+			throws Exception {
+
 		try {
 
 			// Step 1:
-			// Hash the whole message
-
+			// Get the rows of the CFF
 			String hashAlgorithmString = spec.getHashType();
 			Digest hashAlgorithm = MTSSMethods.createHash(hashAlgorithmString);
-			byte[] message = blockedMessage.getMessage();
 
-			byte[] hstar = new byte[hashAlgorithm.getDigestSize()];
-			hashAlgorithm.update(message, 0, message.length);
-			hashAlgorithm.doFinal(hstar, 0);
-
-			// Step 2:
-			// Concatenate according to CFF
 			Factory factory = new Factory();
 			String CFFMatrixType = spec.getCFFMatrixType();
 			CFFMatrix m = factory.createCFFMatrix(CFFMatrixType, cff);
@@ -118,12 +131,13 @@ public class MTSS {
 				lists.add(m.getRow(i));
 			}
 
-			List<byte[]> blocks = blockedMessage.getBlocks();
-			List<byte[]> concatenatedBlocks = MTSSMethods.concatenateBlocks(lists, blocks);
-
-			// Step 3:
-			// Hash the concatenated blocks
-			List<byte[]> tuple = MTSSMethods.hashBytes(concatenatedBlocks, hashAlgorithm);
+			// Step 2 and 3:
+			// Hash the rows according to CFF and the whole message in one pass over the
+			// blocks
+			String mode = spec.getMode();
+			List<byte[]> tuple = hashRows(mode, lists, stream, hashAlgorithmString, hashAlgorithm);
+			byte[] hstar = new byte[hashAlgorithm.getDigestSize()];
+			hashAlgorithm.doFinal(hstar, 0);
 
 			// Step 4:
 			// Signing Preparation
@@ -140,10 +154,11 @@ public class MTSS {
 			}
 			String TString = THexString.toString();
 
-			// From BlockedMessage
-			int blockSize = blockedMessage.getBlockSize();
-			int numberOfBlocks = blockedMessage.getNumberOfBlocks(); // n
-			String fileType = blockedMessage.getFileType();
+			// From BlockStream
+			int blockSize = stream.getBlockSize();
+			int numberOfBlocks = stream.getNumberOfBlocks(); // n
+			String fileType = stream.getFileType();
+			String parameters = stream.getParameters();
 
 			// From CFF
 			int d = cff.getD();
@@ -154,7 +169,7 @@ public class MTSS {
 
 			// Combine all the parameters with TString as 'whole' to be signed altogether
 			String wholeString = MTSSMethods.signPrep(signatureSchemeString, hashAlgorithmString, fileType, CFFMethod,
-					CFFMatrixType, d, t, blockSize, numberOfBlocks, TString);
+					CFFMatrixType, d, t, blockSize, numberOfBlocks, TString, parameters, mode);
 			byte[] whole = wholeString.getBytes();
 
 			// Step 5:
@@ -169,7 +184,7 @@ public class MTSS {
 			String signatureString = signatureHex.toString();
 			// Return the MTSignature object
 			return new MTSSignature(signatureSchemeString, hashAlgorithmString, fileType, CFFMethod, CFFMatrixType,
-					blockSize, numberOfBlocks, d, t, TString, signatureString);
+					blockSize, numberOfBlocks, d, t, TString, signatureString, parameters, mode);
 		} catch (Exception e) {
 			System.err.println("An unexpected error occurred during the signing process: " + e.getMessage());
 			throw e;
@@ -177,7 +192,8 @@ public class MTSS {
 	}
 
 	/**
-	 * Verifies an MTSS signature using MTSS.
+	 * Verifies an MTSS signature using MTSS. The modified files of a directory
+	 * tree are printed by name.
 	 * 
 	 * @param blockedMessageM the BlockedMessage object containing the message
 	 *                        divided into blocks.
@@ -198,48 +214,32 @@ public class MTSS {
 		try {
 
 			// Step 1: Verify the signature with whole
-			String signatureSchemeString = mtssignature.getSignatureScheme();
-			CDSS signatureScheme = MTSSMethods.createCDSS(signatureSchemeString);
-			String hashAlgorithmString = mtssignature.getHashAlgorithm();
-			String fileType = mtssignature.getFileType();
-			String CFFMethod = mtssignature.getCFFMethod();
-			String CFFMatrixType = mtssignature.getCFFMatrixType();
-			int d = mtssignature.getD();
-			int t = mtssignature.getRows();
-			int blockSize = mtssignature.getBlockSize();
-			int numberOfBlocks = mtssignature.getNumberOfBlocks();
-			String TString = mtssignature.getTString();
-
-			String wholeString = MTSSMethods.signPrep(signatureSchemeString, hashAlgorithmString, fileType, CFFMethod,
-					CFFMatrixType, d, t, blockSize, numberOfBlocks, TString);
-
-			byte[] whole = wholeString.getBytes();
-			String signatureString = mtssignature.getSignatureString();
-			byte[] signature = MTSSMethods.hexToByteArray(signatureString);
-			boolean verifyResult = signatureScheme.Verify(whole, signature, publicKey);
-			if (!verifyResult) {
+			if (!verifyWhole(mtssignature, publicKey)) {
 				System.out.println("The signature is not valid.");
-				return verifyResult; // output (0,-)
+				return false; // output (0,-)
 				// Exit and stop
 			}
 
 			// Step 2:
 			// Get hstar and tuple of hashes from the signing process to compare
-
-			String[] tupleAndHstar = TString.split(" ");
-			List<byte[]> tuple = new ArrayList<>();
-			for (String h : tupleAndHstar) { // Convert each hexadecimal byte back to a byte array
-				byte[] byteArray = MTSSMethods.hexToByteArray(h);
-				tuple.add(byteArray);
-			}
+			List<byte[]> tuple = readTuple(mtssignature.getTString());
 			int lastIndex = tuple.size() - 1;
 			byte[] hstar = tuple.get(lastIndex); // hstar
 			tuple.remove(lastIndex);
+			String hashAlgorithmString = mtssignature.getHashAlgorithm();
+			Factory factory = new Factory();
+			CFFMatrix m = factory.createCFFMatrix(mtssignature.getCFFMatrixType(), cffM);
+			List<List<Integer>> lists = rowsOf(m, mtssignature.getRows());
+			List<byte[]> tupleM = null;
 			// Calculate hstarM from message for compare
-			byte[] messageM = blockedMessageM.getMessage();
 			Digest hashAlgorithm = MTSSMethods.createHash(hashAlgorithmString);
 			byte[] hstarM = new byte[hashAlgorithm.getDigestSize()]; // Modified message
-			hashAlgorithm.update(messageM, 0, messageM.length);
+			if (mtssignature.getMode().equals("rows")) {
+				blockedMessageM.forEachMessageSegment(segment -> MTSSMethods.update(hashAlgorithm, segment));
+			} else { // hstar is hashed from the block digests, along with the rows
+				tupleM = hashRows(mtssignature.getMode(), lists, blockedMessageM.stream(), hashAlgorithmString,
+						hashAlgorithm);
+			}
 			hashAlgorithm.doFinal(hstarM, 0);
 
 			// Compare hstar with hstarM
@@ -250,36 +250,23 @@ public class MTSS {
 			}
 
 			// Step 3:
-			// a) Concatenate blocks according to CFF
-			Factory factory = new Factory();
-			CFFMatrix m = factory.createCFFMatrix(CFFMatrixType, cffM);
-			List<List<Integer>> lists = new ArrayList<>();
-			for (int i = 0; i < t; i++) {
-				lists.add(m.getRow(i));
+			// Hash the rows in one pass over the blocks, unless done already
+			if (tupleM == null) {
+				tupleM = MTSSMethods.hashRows(lists, blockedMessageM, hashAlgorithmString, null);
 			}
-			List<byte[]> blocksM = blockedMessageM.getBlocks();
-			List<byte[]> concatenatedBlocksM = MTSSMethods.concatenateBlocks(lists, blocksM);
-			// b) Hash the concatenated blocks
-			List<byte[]> tupleM = MTSSMethods.hashBytes(concatenatedBlocksM, hashAlgorithm);
 
 			// Step 4:
 			// Locate modification: compare tuple with tupleM
-			int[] y = new int[t];
-			for (int i = 0; i < tuple.size(); i++) {
-				byte[] hash = tuple.get(i);
-				byte[] hashM = tupleM.get(i);
-				if (Arrays.equals(hash, hashM)) {
-					y[i] = 0;
-				} else {
-					y[i] = 1;
+			List<Integer> defectives = new ArrayList<>();
+			Boolean result = locate(tuple, tupleM, cffM, m, mtssignature.getCFFMethod(), GTchoice, defectives);
+			if (blockedMessageM instanceof DirectoryMessage) { // name the modified files
+				DirectoryMessage directory = (DirectoryMessage) blockedMessageM;
+				for (int i : defectives) {
+					if (i >= 1 && i <= directory.getNumberOfBlocks()) {
+						System.out.println("modified files: " + String.join(", ", directory.getFiles(i - 1)));
+					}
 				}
 			}
-
-			// System.out.println("y: " + Arrays.toString(y));
-			List<Integer> I = new ArrayList<>();
-			GroupTesting gt = factory.createGroupTesting(GTchoice, cffM, CFFMethod, m);
-			Boolean result = gt.findDefectives(y, I);
-			System.out.println("defectives: " + I);
 			return result;
 
 		} catch (Exception e) {
@@ -289,6 +276,187 @@ public class MTSS {
 
 	}
 
+	/**
+	 * Verifies an MTSS signature using MTSS, reading the blocks from a stream. The
+	 * rows and the whole message are hashed in the same pass, so the message is
+	 * read once even when it has been modified.
+	 * 
+	 * @param streamM      the BlockStream producing the blocks of the message.
+	 * @param cffM         the CFF object representing the combinatorial group
+	 *                     testing configuration.
+	 * @param mtssignature the MTSSignature object representing the signature to be
+	 *                     verified.
+	 * @param GTchoice     the group testing choice, indicating whether to use the
+	 *                     general or specific decoding method. Possible values: 0
+	 *                     for general, 1 for specific decoding method.
+	 * @param publicKey    the public key used for verifying the signature.
+	 * @return true if the signature is valid; false otherwise.
+	 * @throws Exception if an error occurs during the verification process.
+	 */
+	public boolean MTSSVerify(BlockStream streamM, CFF cffM, MTSSignature mtssignature, int GTchoice,
+			AsymmetricKeyParameter publicKey) throws Exception {
+
+		try {
+
+			// Step 1: Verify the signature with whole
+			if (!verifyWhole(mtssignature, publicKey)) {
+				System.out.println("The signature is not valid.");
+				return false; // output (0,-)
+				// Exit and stop
+			}
+
+			// Step 2:
+			// Get hstar and tuple of hashes from the signing process to compare
+			List<byte[]> tuple = readTuple(mtssignature.getTString());
+			int lastIndex = tuple.size() - 1;
+			byte[] hstar = tuple.get(lastIndex); // hstar
+			tuple.remove(lastIndex);
+
+			// Step 3:
+			// Hash the rows and the whole message in one pass over the blocks
+			Factory factory = new Factory();
+			CFFMatrix m = factory.createCFFMatrix(mtssignature.getCFFMatrixType(), cffM);
+			List<List<Integer>> lists = rowsOf(m, mtssignature.getRows());
+			String hashAlgorithmString = mtssignature.getHashAlgorithm();
+			Digest hashAlgorithm = MTSSMethods.createHash(hashAlgorithmString);
+			List<byte[]> tupleM = hashRows(mtssignature.getMode(), lists, streamM, hashAlgorithmString,
+					hashAlgorithm);
+			byte[] hstarM = new byte[hashAlgorithm.getDigestSize()];
+			hashAlgorithm.doFinal(hstarM, 0);
+
+			// Compare hstar with hstarM
+			if (Arrays.equals(hstar, hstarM)) {
+				System.out.println("The document has not been modified.");
+				return true;// output (1,-)
+			}
+
+			// Step 4:
+			// Locate modification: compare tuple with tupleM
+			return locate(tuple, tupleM, cffM, m, mtssignature.getCFFMethod(), GTchoice, new ArrayList<>());
+
+		} catch (Exception e) {
+			System.err.println("An unexpected error occurred during the verification process: " + e.getMessage());
+			throw e;
+		}
+
+	}
+
+	/**
+	 * Verifies the CDSS signature over the parameters and hashes of an MTSS
+	 * signature.
+	 * 
+	 * @param mtssignature the MTSSignature object to be verified.
+	 * @param publicKey    the public key used for verifying the signature.
+	 * @return true if the signature is valid; false otherwise.
+	 * @throws Exception if an error occurs during the verification.
+	 */
+	private boolean verifyWhole(MTSSignature mtssignature, AsymmetricKeyParameter publicKey) throws Exception {
+		String signatureSchemeString = mtssignature.getSignatureScheme();
+		CDSS signatureScheme = MTSSMethods.createCDSS(signatureSchemeString);
+		String wholeString = MTSSMethods.signPrep(signatureSchemeString, mtssignature.getHashAlgorithm(),
+				mtssignature.getFileType(), mtssignature.getCFFMethod(), mtssignature.getCFFMatrixType(),
+				mtssignature.getD(), mtssignature.getRows(), mtssignature.getBlockSize(),
+				mtssignature.getNumberOfBlocks(), mtssignature.getTString(), mtssignature.getParameters(),
+				mtssignature.getMode());
+
+		byte[] whole = wholeString.getBytes();
+		byte[] signature = MTSSMethods.hexToByteArray(mtssignature.getSignatureString());
+		return signatureScheme.Verify(whole, signature, publicKey);
+	}
+
+	/**
+	 * Hashes the rows of a CFF, and the whole message, as the signature mode
+	 * requires. In the "rows" mode, each row hashes its blocks and hstar the
+	 * message; in the "blockdigest" mode, each block is hashed once, and the rows
+	 * and hstar hash the block digests.
+	 * 
+	 * @param mode          the signature mode.
+	 * @param lists         the list of index lists, one for each row.
+	 * @param stream        the BlockStream producing the blocks of the message.
+	 * @param hashAlgorithm the name of the hash algorithm.
+	 * @param hstarDigest   the digest receiving the message for hstar.
+	 * @return the list of row hashes.
+	 * @throws IllegalArgumentException if the mode is neither "rows" nor
+	 *                                  "blockdigest".
+	 */
+	private static List<byte[]> hashRows(String mode, List<List<Integer>> lists, BlockStream stream,
+			String hashAlgorithm, Digest hstarDigest) {
+		switch (mode.toLowerCase()) {
+		case "rows":
+			return MTSSMethods.hashRows(lists, stream, hashAlgorithm, hstarDigest);
+		case "blockdigest":
+			return MTSSMethods.hashBlockDigests(lists, stream, hashAlgorithm, hstarDigest);
+		default:
+			throw new IllegalArgumentException("Invalid signature mode!");
+		}
+	}
+
+	/**
+	 * Converts the hexadecimal hashes of a TString back to byte arrays.
+	 * 
+	 * @param TString the row hashes followed by hstar, separated by spaces.
+	 * @return the list of hashes, with hstar last.
+	 */
+	private static List<byte[]> readTuple(String TString) {
+		String[] tupleAndHstar = TString.split(" ");
+		List<byte[]> tuple = new ArrayList<>();
+		for (String h : tupleAndHstar) { // Convert each hexadecimal byte back to a byte array
+			byte[] byteArray = MTSSMethods.hexToByteArray(h);
+			tuple.add(byteArray);
+		}
+		return tuple;
+	}
+
+	/**
+	 * Gets the rows of a CFF matrix.
+	 * 
+	 * @param m the CFF matrix.
+	 * @param t the number of rows.
+	 * @return the list of index lists, one for each row.
+	 */
+	private static List<List<Integer>> rowsOf(CFFMatrix m, int t) {
+		List<List<Integer>> lists = new ArrayList<>();
+		for (int i = 0; i < t; i++) {
+			lists.add(m.getRow(i));
+		}
+		return lists;
+	}
+
+	/**
+	 * Locates the modified blocks by comparing the signed row hashes with those of
+	 * the message, and prints them.
+	 * 
+	 * @param tuple     the row hashes from the signature.
+	 * @param tupleM    the row hashes of the message.
+	 * @param cffM      the CFF object representing the combinatorial group testing
+	 *                  configuration.
+	 * @param m         the CFF matrix.
+	 * @param CFFMethod the construction method of the CFF.
+	 * @param GTchoice  the group testing choice.
+	 * @param I         the list receiving the numbers of the modified blocks,
+	 *                  starting from 1.
+	 * @return the result of the group testing.
+	 */
+	private Boolean locate(List<byte[]> tuple, List<byte[]> tupleM, CFF cffM, CFFMatrix m, String CFFMethod,
+			int GTchoice, List<Integer> I) {
+		int[] y = new int[tuple.size()];
+		for (int i = 0; i < tuple.size(); i++) {
+			byte[] hash = tuple.get(i);
+			byte[] hashM = tupleM.get(i);
+			if (Arrays.equals(hash, hashM)) {
+				y[i] = 0;
+			} else {
+				y[i] = 1;
+			}
+		}
+
+		// System.out.println("y: " + Arrays.toString(y));
+		GroupTesting gt = new Factory().createGroupTesting(GTchoice, cffM, CFFMethod, m);
+		Boolean result = gt.findDefectives(y, I);
+		System.out.println("defectives: " + I);
+		return result;
+	}
+
 	/**
 	 * Signs a message using MTSS and writes the resulting signature to a file.
 	 * 
@@ -347,4 +515,56 @@ public class MTSS {
 
 	}
 
+
+	/**
+	 * Signs a message read as a stream of blocks using MTSS and writes the
+	 * resulting signature to a file. The stream is closed afterwards.
+	 * 
+	 * @param stream   the BlockStream producing the blocks of the message.
+	 * @param spec     the Specification object that holds the parameters and
+	 *                 settings for MTSS.
+	 * @param cff      the CFF object representing the combinatorial group testing
+	 *                 configuration.
+	 * @param privKey  the private key used for signing the message.
+	 * @param fileName the name of the file where the MTSS signature will be
+	 *                 written.
+	 * @return an MTSSignature object representing the resulting MTSS signature.
+	 * @throws Exception if an error occurs during the signing process or while
+	 *                   writing to the file.
+	 */
+	public MTSSignature MTSSignFile(BlockStream stream, Specification spec, CFF cff, AsymmetricKeyParameter privKey,
+			String fileName) throws Exception {
+
+		try (stream) {
+			MTSSignature mtSignature = MTSSign(stream, spec, cff, privKey);
+			mtSignature.writeToFile(fileName);
+			return mtSignature;
+		}
+	}
+
+	/**
+	 * Verifies an MTSS signature read from a file, reading the message as a stream
+	 * of blocks. The stream is closed afterwards.
+	 * 
+	 * @param streamM       the BlockStream producing the blocks of the message.
+	 * @param cffM          the CFF object representing the combinatorial group
+	 *                      testing configuration.
+	 * @param signatureFile the name of the file from which the MTSS signature will
+	 *                      be read.
+	 * @param GTChoice      the group testing choice: 0 for general decoding, 1 for
+	 *                      specific decoding method.
+	 * @param publicKey     the public key used for verifying the signature.
+	 * @return true if the signature is valid; false otherwise.
+	 * @throws Exception if an error occurs during the verification process or while
+	 *                   reading the signature from the file.
+	 */
+	public boolean MTSSVerifyFile(BlockStream streamM, CFF cffM, String signatureFile, int GTChoice,
+			AsymmetricKeyParameter publicKey) throws Exception {
+
+		try (streamM) {
+			MTSSignature mtssignatureM = MTSSignature.readFromFile(signatureFile);
+			return MTSSVerify(streamM, cffM, mtssignatureM, GTChoice, publicKey);
+		}
+	}
+
 }
@@ -2,24 +2,32 @@ package mtss;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
 import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
 import org.bouncycastle.util.io.pem.PemReader;
 import org.bouncycastle.util.io.pem.PemWriter;
 
+import block.BlockStream;
+import block.BlockedMessage;
 import cdss.CDSS;
 import cdss.Dilithium;
 import cdss.ECDSA;
 import cdss.FALCON;
 import cdss.RSA;
 import cdss.SPHINCSPlus;
+import hash.Digests;
+import hash.MultiBufferSHA256;
+import hash.ParallelBlake3Digest;
 
 import org.bouncycastle.crypto.Digest;
-import org.bouncycastle.crypto.digests.SHA256Digest;
-import org.bouncycastle.crypto.digests.SHA3Digest;
-import org.bouncycastle.crypto.digests.SHA512Digest;
 import org.bouncycastle.asn1.ASN1InputStream;
 
 import org.bouncycastle.util.io.pem.PemObject;
@@ -52,6 +60,13 @@ import org.bouncycastle.util.io.pem.PemObject;
  */
 public class MTSSMethods {
 
+	// Scratch array for feeding buffers without an accessible array to a digest
+	private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[1 << 16]);
+
+	// Row digests kept for the next message, by hash algorithm
+	private static final int MAX_POOLED_DIGESTS = 1024;
+	private static final Map<String, ArrayBlockingQueue<Digest>> DIGESTS = new ConcurrentHashMap<>();
+
 	/**
 	 * Concatenates blocks based on the provided lists of indices.
 	 *
@@ -115,6 +130,293 @@ public class MTSSMethods {
 		return hashedResults;
 	}
 
+	/**
+	 * Hashes every row of a CFF matrix in a single pass over the blocks, without
+	 * concatenating them. Since the column indices of each row are in ascending
+	 * order, feeding each block to the digests of all rows containing it, in block
+	 * order, yields the same hashes as hashing the concatenated rows.
+	 *
+	 * @param lists          the list of index lists specifying the rows of the CFF
+	 *                       matrix
+	 * @param blockedMessage the message divided into blocks
+	 * @param hashAlgorithm  the name of the hash algorithm used for every row
+	 * @param hstarDigest    if not null, the whole message is also fed to this
+	 *                       digest
+	 * @return a list of hashed byte arrays, one for each row
+	 */
+	public static List<byte[]> hashRows(List<List<Integer>> lists, BlockedMessage blockedMessage,
+			String hashAlgorithm, Digest hstarDigest) {
+		return hashRows(lists, blockedMessage.stream(), hashAlgorithm, hstarDigest);
+	}
+
+	/**
+	 * Hashes every row of a CFF matrix in a single pass over a stream of blocks,
+	 * as each block is read. Each block is fed to the digests of all rows
+	 * containing it, in block order. With a parallelism above 1, the rows of a
+	 * BlockedMessage are hashed by ParallelHasher, and the large segments of
+	 * other streams are fed to their digests in parallel. When MultiBufferSHA256
+	 * is usable for SHA-256 and the rows, and the blocks of a BlockedMessage are
+	 * views of the message, its rows are hashed in lockstep instead.
+	 *
+	 * @param lists         the list of index lists specifying the rows of the CFF
+	 *                      matrix
+	 * @param stream        the stream of blocks, not yet advanced
+	 * @param hashAlgorithm the name of the hash algorithm used for every row
+	 * @param hstarDigest   if not null, the whole message is also fed to this
+	 *                      digest: from the blocks when the stream is sequential,
+	 *                      otherwise from the message sink of the stream
+	 * @return a list of hashed byte arrays, one for each row
+	 */
+	public static List<byte[]> hashRows(List<List<Integer>> lists, BlockStream stream, String hashAlgorithm,
+			Digest hstarDigest) {
+		boolean parallel = ParallelHasher.getParallelism() > 1;
+		BlockedMessage message = stream.getBlockedMessage();
+		boolean lockstep = message != null && message.isSequential()
+				&& MultiBufferSHA256.isUsable(hashAlgorithm, lists.size());
+		if (parallel && message != null) { // the rows can be hashed independently
+			return ParallelHasher.hashRows(lists, message, hashAlgorithm, hstarDigest,
+					lockstep ? MultiBufferSHA256.getLanes() : 1);
+		}
+		if (lockstep) {
+			if (hstarDigest != null) {
+				message.forEachMessageSegment(segment -> update(hstarDigest, segment));
+			}
+			return List.of(hashRowsInLockstep(lists, message, 0, lists.size()));
+		}
+		int t = lists.size();
+		int n = stream.getNumberOfBlocks();
+		int[][] rowsOfBlock = rowsOfBlocks(lists, n);
+
+		Digest[] digests = new Digest[t];
+		for (int i = 0; i < t; i++) {
+			digests[i] = acquireHash(hashAlgorithm);
+		}
+
+		boolean blocksToHstar = hstarDigest != null && stream.isSequential();
+		if (hstarDigest != null && !blocksToHstar) {
+			stream.setMessageSink(segment -> update(hstarDigest, segment));
+		}
+
+		// Walk the blocks once, as they are read
+		stream.forEachRemaining(block -> {
+			int[] rows = rowsOfBlock[block.getIndex()];
+			block.forEachSegment(segment -> {
+				if (parallel && rows.length > 0 && segment.remaining() >= ParallelHasher.MIN_PARALLEL_SEGMENT) {
+					List<Digest> segmentDigests = new ArrayList<>();
+					for (int i : rows) {
+						segmentDigests.add(digests[i]);
+					}
+					if (blocksToHstar) {
+						segmentDigests.add(hstarDigest);
+					}
+					ParallelHasher.update(segmentDigests, segment);
+					return;
+				}
+				for (int i : rows) {
+					update(digests[i], segment);
+				}
+				if (blocksToHstar) {
+					update(hstarDigest, segment);
+				}
+			});
+		});
+
+		List<byte[]> hashedResults = new ArrayList<>();
+		for (Digest digest : digests) {
+			byte[] hashedRow = new byte[digest.getDigestSize()];
+			digest.doFinal(hashedRow, 0); // also resets the digest
+			hashedResults.add(hashedRow);
+			releaseHash(hashAlgorithm, digest);
+		}
+		return hashedResults;
+	}
+
+	/**
+	 * Hashes a range of rows of a CFF matrix with multi-buffer SHA-256, as many
+	 * rows at once as MultiBufferSHA256 has lanes. Each row reads the views of its
+	 * blocks as it goes, so the blocks must be views of the message that stay
+	 * valid, as those of a sequential BlockedMessage.
+	 *
+	 * @param lists   the list of index lists specifying the rows of the CFF matrix
+	 * @param message the message divided into blocks, in message order
+	 * @param from    the first row to hash
+	 * @param to      the row after the last one to hash
+	 * @return the SHA-256 hash of each row from the first to the last
+	 */
+	static byte[][] hashRowsInLockstep(List<List<Integer>> lists, BlockedMessage message, int from, int to) {
+		List<Iterator<ByteBuffer>> rows = new ArrayList<>();
+		for (int i = from; i < to; i++) {
+			Iterator<Integer> blocks = lists.get(i).iterator();
+			ArrayDeque<ByteBuffer> segments = new ArrayDeque<>();
+			rows.add(new Iterator<ByteBuffer>() {
+				@Override
+				public boolean hasNext() {
+					while (segments.isEmpty() && blocks.hasNext()) { // read the next block with bytes
+						message.forEachSegment(blocks.next(), segments::add);
+					}
+					return !segments.isEmpty();
+				}
+
+				@Override
+				public ByteBuffer next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return segments.poll();
+				}
+			});
+		}
+		return MultiBufferSHA256.hash(rows);
+	}
+
+	/**
+	 * Hashes every row of a CFF matrix in a single pass over a stream of blocks,
+	 * hashing each block only once: each row hashes the digests of its blocks, in
+	 * block order, instead of the blocks themselves. The bytes hashed are then
+	 * those of the message once, plus a digest for each block of each row. With a
+	 * parallelism above 1, the blocks of a BlockedMessage are hashed in parallel.
+	 *
+	 * @param lists         the list of index lists specifying the rows of the CFF
+	 *                      matrix
+	 * @param stream        the stream of blocks, not yet advanced
+	 * @param hashAlgorithm the name of the hash algorithm used for the blocks and
+	 *                      every row
+	 * @param hstarDigest   if not null, the digests of all the blocks are also fed
+	 *                      to this digest, in block order
+	 * @return a list of hashed byte arrays, one for each row
+	 */
+	public static List<byte[]> hashBlockDigests(List<List<Integer>> lists, BlockStream stream, String hashAlgorithm,
+			Digest hstarDigest) {
+		if (ParallelHasher.getParallelism() > 1 && stream.getBlockedMessage() != null) {
+			return ParallelHasher.hashBlockDigests(lists, stream.getBlockedMessage(), hashAlgorithm, hstarDigest);
+		}
+		int t = lists.size();
+		int n = stream.getNumberOfBlocks();
+		int[][] rowsOfBlock = rowsOfBlocks(lists, n);
+
+		Digest[] digests = new Digest[t];
+		for (int i = 0; i < t; i++) {
+			digests[i] = acquireHash(hashAlgorithm);
+		}
+		Digest blockDigest = acquireHash(hashAlgorithm);
+		byte[] hashedBlock = new byte[blockDigest.getDigestSize()];
+
+		// Walk the blocks once, as they are read, passing on the digest of each
+		stream.forEachRemaining(block -> {
+			block.forEachSegment(segment -> update(blockDigest, segment));
+			blockDigest.doFinal(hashedBlock, 0);
+			for (int i : rowsOfBlock[block.getIndex()]) {
+				digests[i].update(hashedBlock, 0, hashedBlock.length);
+			}
+			if (hstarDigest != null) {
+				hstarDigest.update(hashedBlock, 0, hashedBlock.length);
+			}
+		});
+		releaseHash(hashAlgorithm, blockDigest);
+
+		List<byte[]> hashedResults = new ArrayList<>();
+		for (Digest digest : digests) {
+			byte[] hashedRow = new byte[digest.getDigestSize()];
+			digest.doFinal(hashedRow, 0);
+			hashedResults.add(hashedRow);
+			releaseHash(hashAlgorithm, digest);
+		}
+		return hashedResults;
+	}
+
+	/**
+	 * Sets the number of workers hashing the rows of a CFF, and the whole message,
+	 * in parallel. By default, it is the number of available processors.
+	 *
+	 * @param parallelism the number of workers, 1 to hash serially
+	 * @throws IllegalArgumentException if parallelism is less than 1
+	 */
+	public static void setParallelism(int parallelism) {
+		ParallelHasher.setParallelism(parallelism);
+	}
+
+	/**
+	 * Returns a digest of a hash algorithm, reusing one released by an earlier
+	 * message if there is one, so signing many files does not create new digests
+	 * for every row of every file.
+	 *
+	 * @param hashAlgorithm the name of the hash algorithm
+	 * @return a digest in its initial state
+	 */
+	static Digest acquireHash(String hashAlgorithm) {
+		ArrayBlockingQueue<Digest> free = DIGESTS.get(hashAlgorithm.toUpperCase());
+		Digest digest = free == null ? null : free.poll();
+		return digest != null ? digest : createHash(hashAlgorithm);
+	}
+
+	/**
+	 * Keeps a digest for reuse by acquireHash, unless enough are kept already.
+	 *
+	 * @param hashAlgorithm the name of the hash algorithm of the digest
+	 * @param digest        the digest, in its initial state
+	 */
+	static void releaseHash(String hashAlgorithm, Digest digest) {
+		DIGESTS.computeIfAbsent(hashAlgorithm.toUpperCase(), name -> new ArrayBlockingQueue<>(MAX_POOLED_DIGESTS))
+				.offer(digest);
+	}
+
+	/**
+	 * Feeds the remaining bytes of a buffer to a digest, leaving the position of
+	 * the buffer unchanged. Buffers without an accessible array, such as mapped
+	 * files, are copied through a small per-thread scratch array.
+	 *
+	 * @param digest the digest to update
+	 * @param buffer the bytes to feed
+	 */
+	public static void update(Digest digest, ByteBuffer buffer) {
+		if (digest instanceof ParallelBlake3Digest) { // hashes buffers in place, on several cores
+			((ParallelBlake3Digest) digest).update(buffer);
+			return;
+		}
+		if (buffer.hasArray()) {
+			digest.update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+			return;
+		}
+		byte[] scratch = SCRATCH.get();
+		int position = buffer.position();
+		int limit = buffer.limit();
+		while (position < limit) {
+			int length = Math.min(scratch.length, limit - position);
+			buffer.get(position, scratch, 0, length);
+			digest.update(scratch, 0, length);
+			position += length;
+		}
+	}
+
+	/**
+	 * Transposes the rows of a CFF matrix: for each block, lists the rows that
+	 * contain it, in ascending order.
+	 *
+	 * @param lists the list of index lists specifying the rows of the CFF matrix
+	 * @param n     the number of blocks
+	 * @return an array holding, for each block, the indices of the rows containing
+	 *         it
+	 */
+	static int[][] rowsOfBlocks(List<List<Integer>> lists, int n) {
+		int[] weights = new int[n];
+		for (List<Integer> list : lists) {
+			for (int j : list) {
+				weights[j]++;
+			}
+		}
+		int[][] rowsOfBlock = new int[n][];
+		for (int j = 0; j < n; j++) {
+			rowsOfBlock[j] = new int[weights[j]];
+			weights[j] = 0;
+		}
+		for (int i = 0; i < lists.size(); i++) {
+			for (int j : lists.get(i)) {
+				rowsOfBlock[j][weights[j]++] = i;
+			}
+		}
+		return rowsOfBlock;
+	}
+
 	/**
 	 * Prepares a string for signing by concatenating all input parameters.
 	 *
@@ -128,10 +430,17 @@ public class MTSSMethods {
 	 * @param blockSize       the block size
 	 * @param numberOfBlocks  the number of blocks
 	 * @param TString         the tuple string
+	 * @param parameters      the block separation parameters, appended only if
+	 *                        not empty
+	 * @param mode            the signature mode, appended only if not "rows",
+	 *                        after a newline: no other field can hold one, as
+	 *                        each is a line of the signature file, so the mode
+	 *                        cannot be passed off as part of the parameters
 	 * @return the concatenated string representation of all inputs
 	 */
 	public static String signPrep(String signatureScheme, String hashAlgorithm, String fileType, String CFFMethod,
-			String CFFMatrixType, int d, int t, int blockSize, int numberOfBlocks, String TString) throws Exception {
+			String CFFMatrixType, int d, int t, int blockSize, int numberOfBlocks, String TString, String parameters,
+			String mode) throws Exception {
 
 		// Convert all the integers to strings
 		String blockSizeString = Integer.toString(blockSize);
@@ -145,6 +454,12 @@ public class MTSSMethods {
 				.append(delimiter).append(CFFMethod).append(delimiter).append(CFFMatrixType).append(delimiter)
 				.append(blockSizeString).append(delimiter).append(numberOfBlocksString).append(delimiter)
 				.append(dString).append(delimiter).append(tString).append(delimiter).append(TString);
+		if (!parameters.isEmpty()) {
+			wholeString.append(delimiter).append(parameters);
+		}
+		if (!mode.equals("rows")) {
+			wholeString.append("\nmode=").append(mode);
+		}
 
 		return wholeString.toString();
 	}
@@ -316,25 +631,16 @@ public class MTSSMethods {
 	}
 
 	/**
-	 * Creates a Digest object based on the specified hash algorithm.
+	 * Creates a Digest object based on the specified hash algorithm. The digest
+	 * of the Java platform is used when it provides the algorithm, so the JIT's
+	 * intrinsics do the hashing.
 	 *
 	 * @param hashAlgorithm the name of the hash algorithm
 	 * @return the corresponding Digest object
 	 * @throws IllegalArgumentException if the hash algorithm is not recognized
 	 */
 	public static Digest createHash(String hashAlgorithm) {
-		switch (hashAlgorithm.toUpperCase()) {
-		case "SHA2256":
-			return new SHA256Digest();
-		case "SHA2512":
-			return new SHA512Digest();
-		case "SHA3256":
-			return new SHA3Digest(256);
-		case "SHA3512":
-			return new SHA3Digest(512);
-		default:
-			throw new IllegalArgumentException("Invalid hash algorithm!");
-		}
+		return Digests.create(hashAlgorithm);
 	}
 
 }
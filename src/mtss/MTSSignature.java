@@ -30,7 +30,10 @@ import java.io.*;
  * parameters of the signature process, such as the signature scheme, hash
  * algorithm, file type, CFF construction method, matrix type, block size,
  * number of blocks, the number of defectives(d), the number of rows(t), a tuple
- * of hashes, the resulting signature.
+ * of hashes, the resulting signature, the block separation parameters and the
+ * signature mode. The parameters line is only written when there are
+ * parameters or a mode other than "rows", and the mode line only for another
+ * mode, so signatures without them keep the original eleven-line format.
  */
 public class MTSSignature {
 
@@ -45,10 +48,13 @@ public class MTSSignature {
 	private int t;
 	private String TString;
 	private String signatureString;
+	private String parameters;
+	private String mode;
 
 	// Constructor
 	MTSSignature(String signatureScheme, String hashAlgorithm, String fileType, String CFFMethod, String CFFMatrixType,
-			int actualBlockSize, int actualNumberOfBlocks, int d, int t, String TString, String signatureString) {
+			int actualBlockSize, int actualNumberOfBlocks, int d, int t, String TString, String signatureString,
+			String parameters, String mode) {
 		this.signatureScheme = signatureScheme;
 		this.hashAlgorithm = hashAlgorithm;
 		this.fileType = fileType;
@@ -60,13 +66,15 @@ public class MTSSignature {
 		this.t = t;
 		this.TString = TString;
 		this.signatureString = signatureString;
+		this.parameters = parameters;
+		this.mode = mode;
 	}
 
 	// Constructor: from MTSSignatureStrings
 	MTSSignature(String MTSSignatureString) {
 		String[] parts = MTSSignatureString.split("\n"); // Split the MTSignatureString using the newline character as
 															// the delimiter
-		if (parts.length != 12) {
+		if (parts.length >= 11) {
 			signatureScheme = parts[0];
 			hashAlgorithm = parts[1];
 			fileType = parts[2];
@@ -78,6 +86,8 @@ public class MTSSignature {
 			t = Integer.parseInt(parts[8]);
 			TString = parts[9];
 			signatureString = parts[10];
+			parameters = parts.length > 11 ? parts[11] : "";
+			mode = parts.length > 12 ? parts[12] : "rows";
 
 		} else {
 			throw new IllegalArgumentException("Invaild signature."); // if the length < 11
@@ -93,7 +103,8 @@ public class MTSSignature {
 	public String toString() {
 		return signatureScheme + "\n" + hashAlgorithm + "\n" + fileType + "\n" + CFFMethod + "\n" + CFFMatrixType + "\n"
 				+ actualBlockSize + "\n" + actualNumberOfBlocks + "\n" + d + "\n" + t + "\n" + TString + "\n"
-				+ signatureString;
+				+ signatureString + (parameters.isEmpty() && mode.equals("rows") ? "" : "\n" + parameters)
+				+ (mode.equals("rows") ? "" : "\n" + mode);
 	}
 
 	/**
@@ -180,4 +191,12 @@ public class MTSSignature {
 		return signatureString;
 	}
 
+	public String getParameters() {
+		return parameters;
+	}
+
+	public String getMode() {
+		return mode;
+	}
+
 }
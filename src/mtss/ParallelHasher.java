@@ -0,0 +1,286 @@
+package mtss;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.bouncycastle.crypto.Digest;
+
+import block.BlockedMessage;
+
+/**
+ * Copyright 2024, Dongxia (Mico) Luo
+ *
+ * Developed for use with the thesis:
+ *
+ *    Modification-Tolerant Digital Signatures using Combinatorial Group Testing: Theory, Algorithms, and Implementation
+ *    Dongxia (Mico) Luo
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the MIT License as published by
+ * the Massachusetts Institute of Technology.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * MIT License for more details.
+ *
+ * You should have received a copy of the MIT License
+ * along with this program. If not, see <https://opensource.org/licenses/MIT>.
+ */
+
+/**
+ * The ParallelHasher class hashes the rows of a CFF, and the whole message, on
+ * several cores of a ForkJoinPool. When the blocks can be read in any order, as
+ * those of a BlockedMessage, the rows are partitioned among the workers: each
+ * row is hashed by one worker with a digest of its own, while another hashes
+ * h*. When the rows are hashed with multi-buffer SHA-256, each worker hashes a
+ * group of rows, as many as there are lanes, in lockstep. In the "blockdigest"
+ * mode, the blocks are hashed in parallel instead.
+ * When the blocks are read once from a stream, each large segment is fed to
+ * the digests of its rows and of h* in parallel.
+ *
+ * The parallelism is the number of available processors unless set; with a
+ * parallelism of 1, MTSSMethods hashes serially as before.
+ *
+ * @field parallelism The number of workers of the pool.
+ * @field pool The pool, created when first used.
+ */
+
+final class ParallelHasher {
+
+	static final int MIN_PARALLEL_SEGMENT = 1 << 16; // smaller segments of a stream are hashed serially
+	static final int BLOCK_WINDOW = 1 << 16; // the blocks whose digests are kept at once
+
+	private static volatile int parallelism = Runtime.getRuntime().availableProcessors();
+	private static ForkJoinPool pool;
+
+	private ParallelHasher() {
+	}
+
+	/**
+	 * Sets the number of workers hashing in parallel.
+	 *
+	 * @param workers the number of workers, 1 to hash serially
+	 * @throws IllegalArgumentException if workers is less than 1
+	 */
+	static synchronized void setParallelism(int workers) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("The parallelism must be positive.");
+		}
+		if (pool != null && workers != parallelism) {
+			pool.shutdown();
+			pool = null;
+		}
+		parallelism = workers;
+	}
+
+	static synchronized int getParallelism() {
+		return parallelism;
+	}
+
+	private static synchronized ForkJoinPool pool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+		}
+		return pool;
+	}
+
+	/**
+	 * Hashes every row of a CFF matrix, each group of rows on one worker, and the
+	 * whole message on another.
+	 *
+	 * @param lists         the list of index lists specifying the rows of the CFF
+	 *                      matrix
+	 * @param message       the message divided into blocks
+	 * @param hashAlgorithm the name of the hash algorithm used for every row
+	 * @param hstarDigest   if not null, the whole message is also fed to this
+	 *                      digest
+	 * @param group         the number of rows hashed by each worker: 1, or the
+	 *                      number of lanes of MultiBufferSHA256 to hash them in
+	 *                      lockstep
+	 * @return a list of hashed byte arrays, one for each row
+	 */
+	static List<byte[]> hashRows(List<List<Integer>> lists, BlockedMessage message, String hashAlgorithm,
+			Digest hstarDigest, int group) {
+		byte[][] hashedRows = new byte[lists.size()][];
+		int groups = (lists.size() + group - 1) / group;
+		// task 0 is h*, the longest, so it starts first
+		pool().invoke(new RowTask(lists, message, hashAlgorithm, hstarDigest, hashedRows, group,
+				hstarDigest == null ? 1 : 0, groups + 1));
+		return List.of(hashedRows);
+	}
+
+	/**
+	 * Hashes every row of a CFF matrix from the digests of its blocks, the blocks
+	 * being hashed in parallel, a window of BLOCK_WINDOW blocks at a time.
+	 *
+	 * @param lists         the list of index lists specifying the rows of the CFF
+	 *                      matrix
+	 * @param message       the message divided into blocks
+	 * @param hashAlgorithm the name of the hash algorithm used for the blocks and
+	 *                      every row
+	 * @param hstarDigest   if not null, the digests of all the blocks are also fed
+	 *                      to this digest, in block order
+	 * @return a list of hashed byte arrays, one for each row
+	 */
+	static List<byte[]> hashBlockDigests(List<List<Integer>> lists, BlockedMessage message, String hashAlgorithm,
+			Digest hstarDigest) {
+		int t = lists.size();
+		int n = message.getNumberOfBlocks();
+		int[][] rowsOfBlock = MTSSMethods.rowsOfBlocks(lists, n);
+		Digest[] digests = new Digest[t];
+		for (int i = 0; i < t; i++) {
+			digests[i] = MTSSMethods.acquireHash(hashAlgorithm);
+		}
+
+		byte[][] hashedBlocks = new byte[Math.min(n, BLOCK_WINDOW)][];
+		int grain = Math.max(1, hashedBlocks.length / (8 * parallelism));
+		for (int from = 0; from < n; from += BLOCK_WINDOW) {
+			int to = Math.min(n, from + BLOCK_WINDOW);
+			pool().invoke(new BlockTask(message, hashAlgorithm, hashedBlocks, from, from, to, grain));
+			for (int j = from; j < to; j++) { // feed the digests in block order
+				byte[] hashedBlock = hashedBlocks[j - from];
+				for (int i : rowsOfBlock[j]) {
+					digests[i].update(hashedBlock, 0, hashedBlock.length);
+				}
+				if (hstarDigest != null) {
+					hstarDigest.update(hashedBlock, 0, hashedBlock.length);
+				}
+			}
+		}
+
+		List<byte[]> hashedResults = new ArrayList<>();
+		for (Digest digest : digests) {
+			byte[] hashedRow = new byte[digest.getDigestSize()];
+			digest.doFinal(hashedRow, 0);
+			hashedResults.add(hashedRow);
+			MTSSMethods.releaseHash(hashAlgorithm, digest);
+		}
+		return hashedResults;
+	}
+
+	/**
+	 * Feeds a segment to several digests in parallel.
+	 *
+	 * @param digests the digests, each updated by one worker
+	 * @param segment the bytes to feed, left unchanged
+	 */
+	static void update(List<Digest> digests, ByteBuffer segment) {
+		List<ForkJoinTask<?>> tasks = new ArrayList<>();
+		for (Digest digest : digests) {
+			tasks.add(ForkJoinTask.adapt(() -> MTSSMethods.update(digest, segment)));
+		}
+		pool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+	}
+
+	/**
+	 * The RowTask class hashes a range of rows, splitting it in halves until each
+	 * task hashes one group of rows. Task 0 hashes the whole message for h*, and
+	 * task i the group i - 1, one row or several in lockstep.
+	 */
+	private static class RowTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private List<List<Integer>> lists;
+		private BlockedMessage message;
+		private String hashAlgorithm;
+		private Digest hstarDigest;
+		private byte[][] hashedRows;
+		private int group;
+		private int from;
+		private int to;
+
+		RowTask(List<List<Integer>> lists, BlockedMessage message, String hashAlgorithm, Digest hstarDigest,
+				byte[][] hashedRows, int group, int from, int to) {
+			this.lists = lists;
+			this.message = message;
+			this.hashAlgorithm = hashAlgorithm;
+			this.hstarDigest = hstarDigest;
+			this.hashedRows = hashedRows;
+			this.group = group;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RowTask(lists, message, hashAlgorithm, hstarDigest, hashedRows, group, from, middle),
+						new RowTask(lists, message, hashAlgorithm, hstarDigest, hashedRows, group, middle, to));
+				return;
+			}
+			if (from == 0) {
+				message.forEachMessageSegment(segment -> MTSSMethods.update(hstarDigest, segment));
+				return;
+			}
+			if (group > 1) {
+				int first = (from - 1) * group;
+				int last = Math.min(first + group, lists.size());
+				byte[][] hashedGroup = MTSSMethods.hashRowsInLockstep(lists, message, first, last);
+				System.arraycopy(hashedGroup, 0, hashedRows, first, hashedGroup.length);
+				return;
+			}
+			Digest digest = MTSSMethods.acquireHash(hashAlgorithm);
+			for (int j : lists.get(from - 1)) { // in ascending order
+				message.forEachSegment(j, segment -> MTSSMethods.update(digest, segment));
+			}
+			byte[] hashedRow = new byte[digest.getDigestSize()];
+			digest.doFinal(hashedRow, 0);
+			MTSSMethods.releaseHash(hashAlgorithm, digest);
+			hashedRows[from - 1] = hashedRow;
+		}
+	}
+
+	/**
+	 * The BlockTask class hashes a range of blocks, splitting it in halves down
+	 * to ranges of grain blocks, each hashed with a digest of its own.
+	 */
+	private static class BlockTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private BlockedMessage message;
+		private String hashAlgorithm;
+		private byte[][] hashedBlocks;
+		private int window; // the first block of the window
+		private int from;
+		private int to;
+		private int grain;
+
+		BlockTask(BlockedMessage message, String hashAlgorithm, byte[][] hashedBlocks, int window, int from, int to,
+				int grain) {
+			this.message = message;
+			this.hashAlgorithm = hashAlgorithm;
+			this.hashedBlocks = hashedBlocks;
+			this.window = window;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > grain) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new BlockTask(message, hashAlgorithm, hashedBlocks, window, from, middle, grain),
+						new BlockTask(message, hashAlgorithm, hashedBlocks, window, middle, to, grain));
+				return;
+			}
+			Digest digest = MTSSMethods.acquireHash(hashAlgorithm);
+			for (int j = from; j < to; j++) {
+				message.forEachSegment(j, segment -> MTSSMethods.update(digest, segment));
+				byte[] hashedBlock = new byte[digest.getDigestSize()];
+				digest.doFinal(hashedBlock, 0);
+				hashedBlocks[j - window] = hashedBlock;
+			}
+			MTSSMethods.releaseHash(hashAlgorithm, digest);
+		}
+	}
+
+}
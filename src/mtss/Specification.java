@@ -31,18 +31,25 @@ package mtss;
  * @field CDSSType the digital signature scheme. Possible values: "ECDSA",
  *        "RSA", "SPHINCSPlus", "FALCON", "Dilithium".
  * @field HashType the hash algorithm. Possible values: "SHA2256", "SHA2512",
- *        "SHA3256", "SHA3512".
+ *        "SHA3256", "SHA3512", "BLAKE2B", "BLAKE3".
  * @field d the number of defectives (d-CFF).
  * @field CFFMethod the CFF construction method. Possible values: "Sperner",
  *        "STS", "RS".
  * @field CFFMatrixType the CFF matrix data structure type. Possible values:
  *        "List", "Compact".
  * @field fileType the type of the file being processed. Possible values:
- *        "text", "image".
+ *        "text", "image", "binary", "cdc", "video", "audio", "csv",
+ *        "jsonl", "directory", "tar".
  * @field choice the choice for block separation. Possible values: 0 (fixing
  *        block size), 1 (fixing number of blocks).
  * @field number the fixing number (either block size or number of blocks,
  *        depending on the choice).
+ * @field parameters the block separation parameters as comma-separated
+ *        key=value pairs, e.g. "min=2048,avg=8192,max=65536" for "cdc" (empty
+ *        to use the defaults of the file type).
+ * @field mode the signature mode. Possible values: "rows" (each row of the
+ *        CFF hashes its blocks), "blockdigest" (each block is hashed once, and
+ *        each row hashes the digests of its blocks).
  */
 public class Specification {
 
@@ -54,6 +61,8 @@ public class Specification {
 	private String fileType;
 	private int choice;
 	private int number;
+	private String parameters = "";
+	private String mode = "rows";
 
 	// Constructor
 	public Specification(String CDSSType, String HashType, int d, String CFFMethod, String CFFMatrixType,
@@ -68,6 +77,20 @@ public class Specification {
 		this.number = number;
 	}
 
+	// Constructor: with block separation parameters
+	public Specification(String CDSSType, String HashType, int d, String CFFMethod, String CFFMatrixType,
+			String fileType, int choice, int number, String parameters) {
+		this(CDSSType, HashType, d, CFFMethod, CFFMatrixType, fileType, choice, number);
+		this.parameters = parameters;
+	}
+
+	// Constructor: with a signature mode
+	public Specification(String CDSSType, String HashType, int d, String CFFMethod, String CFFMatrixType,
+			String fileType, int choice, int number, String parameters, String mode) {
+		this(CDSSType, HashType, d, CFFMethod, CFFMatrixType, fileType, choice, number, parameters);
+		this.mode = mode;
+	}
+
 	// Constructor: from MTSSignature
 	public Specification(MTSSignature mtssignature) {
 		CDSSType = mtssignature.getSignatureScheme();
@@ -78,6 +101,8 @@ public class Specification {
 		fileType = mtssignature.getFileType();
 		choice = 0;
 		number = mtssignature.getBlockSize();
+		parameters = mtssignature.getParameters();
+		mode = mtssignature.getMode();
 	}
 
 	// getter methods
@@ -113,4 +138,41 @@ public class Specification {
 		return number;
 	}
 
+	public String getParameters() {
+		return parameters;
+	}
+
+	public String getMode() {
+		return mode;
+	}
+
+	/**
+	 * Looks up one of the block separation parameters.
+	 *
+	 * @param key          the name of the parameter
+	 * @param defaultValue the value returned if the parameter is not set
+	 * @return the value of the parameter, or defaultValue
+	 */
+	public int getParameter(String key, int defaultValue) {
+		String value = getParameter(key, (String) null);
+		return value == null ? defaultValue : Integer.parseInt(value);
+	}
+
+	/**
+	 * Looks up one of the block separation parameters as text.
+	 *
+	 * @param key          the name of the parameter
+	 * @param defaultValue the value returned if the parameter is not set
+	 * @return the value of the parameter, or defaultValue
+	 */
+	public String getParameter(String key, String defaultValue) {
+		for (String pair : parameters.split(",")) {
+			int equals = pair.indexOf('=');
+			if (equals > 0 && pair.substring(0, equals).trim().equalsIgnoreCase(key)) {
+				return pair.substring(equals + 1).trim();
+			}
+		}
+		return defaultValue;
+	}
+
 }
@@ -1,13 +1,25 @@
 package terminal;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
+import block.BlockIndex;
+import block.BlockStream;
 import block.BlockedMessage;
+import block.GzipInput;
 import cdss.KeyPair;
 import cff.CFF;
+import mtss.BlockPlanner;
 import mtss.Factory;
 import mtss.MTSS;
+import mtss.MTSSMethods;
 import mtss.Specification;
 
 /**
@@ -37,6 +49,8 @@ import mtss.Specification;
 
 public class MicoSign {
 
+	private static final int AUTO = -1; // a number of blocks to be planned
+
 	public static void main(String[] args) throws Exception {
 
 		// If user input == "null" or user input = "-help", display the instruction
@@ -47,7 +61,7 @@ public class MicoSign {
 			System.out.println("  -a <ecdsa|rsa|sphincsplus|falcon|dilithium>");
 			System.out.println("     Select the CDSS algorithm.");
 			System.out.println();
-			System.out.println("  -h <sha2256|sha2512|sha3256|sha3512>");
+			System.out.println("  -h <sha2256|sha2512|sha3256|sha3512|blake2b|blake3>");
 			System.out.println("     Choose the hash algorithm.");
 			System.out.println();
 			System.out.println("  -d <integer>");
@@ -65,19 +79,59 @@ public class MicoSign {
 			System.out.println();
 			System.out.println("  -g <image> | -t <text>");
 			System.out.println("     Choose the type of file to sign:");
-			System.out.println("       - 'g' for image files");
+			System.out.println("       - 'g' for image files (PGM or colour PPM)");
 			System.out.println("       - 't' for text files");
 			System.out.println("     You can sign one or more documents of the same type.");
 			System.out.println("     Leave a space between each file.");
 			System.out.println();
-			System.out.println("  -b <integer> | -z <integer>");
+			System.out.println("  -ft <binary|cdc|video|audio|csv|jsonl|directory|tar> <file>");
+			System.out.println("     Sign files of another type, followed by one or more files:");
+			System.out.println("       - 'binary' for any file, with fixed-size blocks in bytes");
+			System.out.println("       - 'cdc' for any file, with content-defined blocks");
+			System.out.println("       - 'video' for Y4M videos, with blocks of frames (or tiles)");
+			System.out.println("       - 'audio' for WAV audio, with blocks of a duration in milliseconds");
+			System.out.println("       - 'csv' or 'jsonl' for records, with blocks of whole records");
+			System.out.println("       - 'directory' for a directory tree, with blocks of files");
+			System.out.println("       - 'tar' for tar archives, with blocks of members");
+			System.out.println();
+			System.out.println("  -p <key=value,...>");
+			System.out.println("     Optional block separation parameters:");
+			System.out.println("       - 'min=<bytes>,avg=<bytes>,max=<bytes>' for cdc");
+			System.out.println("       - 'channels=separate' for colour images, to divide each channel");
+			System.out.println("         into its own tiles (interleaved by default)");
+			System.out.println("       - 'blocks=tiles' for video, to divide every frame into tiles whose");
+			System.out.println("         side is the block size (blocks of frames by default)");
+			System.out.println("       - 'gzip=on' for gzip-compressed text, csv, jsonl or tar files, to");
+			System.out.println("         sign their content, inflated on the fly (the stored bytes by");
+			System.out.println("         default)");
+			System.out.println();
+			System.out.println("  -b <integer|auto|auto:<bytes>> | -z <integer>");
 			System.out.println("     Choose either:");
 			System.out.println("       - 'b' for fixing the number of blocks");
 			System.out.println("       - 'z' for fixing block size");
+			System.out.println("     'auto' plans the number of blocks from the file size, d and the CFF");
+			System.out.println("     method, trading signing time against signature size; 'auto:<bytes>'");
+			System.out.println("     keeps the blocks at most that many bytes (1 MB by default).");
 			System.out.println("     You can choose different block size or number of blocks for each file.");
 			System.out.println();
 			System.out.println("  -s <String>");
 			System.out.println("     Specify a customized extension for signature files.");
+			System.out.println();
+			System.out.println("  -i <on|off>");
+			System.out.println("     Optionally write a block index <file>.idx next to each text, binary,");
+			System.out.println("     cdc, audio, csv or jsonl file, so verifying the unchanged file skips");
+			System.out.println("     block separation. Streamed files (image, video, tar and gzip=on) and");
+			System.out.println("     directories are not indexed.");
+			System.out.println();
+			System.out.println("  -m <rows|blockdigest>");
+			System.out.println("     Optionally choose the signature mode:");
+			System.out.println("       - 'rows' for hashing the blocks of each row of the CFF (by default)");
+			System.out.println("       - 'blockdigest' for hashing each block once, and the block digests of");
+			System.out.println("         each row, so the file is hashed once whatever the CFF");
+			System.out.println();
+			System.out.println("  -j <integer>");
+			System.out.println("     Optionally set the number of threads hashing the rows of the CFF");
+			System.out.println("     in parallel (the number of processors by default).");
 
 		} else if (args.length >= 16) {
 			// Command line is separated by one or more spaces. Should expect at least 16
@@ -92,9 +146,13 @@ public class MicoSign {
 			String fileType = null;
 			int choice = 0;
 			List<Integer> fixingNumbers = new ArrayList<>();
+			List<Long> maxBlockBytes = new ArrayList<>(); // for planned numbers of blocks
 
 			List<String> files = new ArrayList<>();
 			String extension = null;
+			String parameters = "";
+			boolean writeIndex = false;
+			String mode = "rows";
 
 			// Check to see if we have all the arguments we want
 			boolean hasCDSSType = false;
@@ -130,7 +188,8 @@ public class MicoSign {
 						case "-h":
 							HashType = value;
 							if (!value.equalsIgnoreCase("sha2256") && !value.equalsIgnoreCase("sha2512")
-									&& !value.equalsIgnoreCase("sha3256") && !value.equalsIgnoreCase("sha3512")) {
+									&& !value.equalsIgnoreCase("sha3256") && !value.equalsIgnoreCase("sha3512")
+									&& !value.equalsIgnoreCase("blake2b") && !value.equalsIgnoreCase("blake3")) {
 								System.out.println(
 										"Invalid choice for the hash type. You can enter '-help' to get instructions.");
 								return;
@@ -172,7 +231,24 @@ public class MicoSign {
 							choice = 1; // fixing number of blocks
 							int l = i;
 							while (l + 1 < args.length && !args[l + 1].startsWith("-")) {
-								fixingNumbers.add(Integer.parseInt(args[l + 1]));
+								String number = args[l + 1].toLowerCase();
+								long blocks;
+								if (number.equals("auto")) { // planned for each file
+									blocks = 0; // with the default maximum block size
+								} else if (number.startsWith("auto:")) {
+									blocks = positiveNumber(number.substring(5));
+								} else {
+									blocks = positiveNumber(number);
+									blocks = blocks > Integer.MAX_VALUE ? -1 : blocks;
+								}
+								if (blocks < 0) {
+									System.out.println(
+											"Invalid choice for the number of blocks. You can enter '-help' to get instructions.");
+									return;
+								}
+								boolean auto = number.startsWith("auto");
+								fixingNumbers.add(auto ? AUTO : (int) blocks);
+								maxBlockBytes.add(auto ? blocks : 0L);
 								l++; // Move to the next file name
 							}
 							hasChoice = true;
@@ -196,6 +272,48 @@ public class MicoSign {
 							hasFile = true;
 							hasFileType = true;
 							break;
+						case "-ft":
+							fileType = value;
+							if (!value.equalsIgnoreCase("binary") && !value.equalsIgnoreCase("cdc")
+									&& !value.equalsIgnoreCase("video") && !value.equalsIgnoreCase("audio")
+									&& !value.equalsIgnoreCase("csv") && !value.equalsIgnoreCase("jsonl")
+									&& !value.equalsIgnoreCase("directory") && !value.equalsIgnoreCase("tar")) {
+								System.out.println(
+										"Invalid choice for the file type. You can enter '-help' to get instructions.");
+								return;
+							}
+							int o = i + 1;
+							while (o + 1 < args.length && !args[o + 1].startsWith("-")) {
+								files.add(args[o + 1]);
+								o++; // Move to the next file name
+							}
+							hasFile = true;
+							hasFileType = true;
+							break;
+						case "-p":
+							if (value.contains("\n") || value.contains("\r")) { // each is one line of the signature
+								System.out.println(
+										"Invalid choice for the parameters. You can enter '-help' to get instructions.");
+								return;
+							}
+							parameters = value;
+							break;
+						case "-i":
+							if (!value.equalsIgnoreCase("on") && !value.equalsIgnoreCase("off")) {
+								System.out.println(
+										"Invalid choice for the block index. You can enter '-help' to get instructions.");
+								return;
+							}
+							writeIndex = value.equalsIgnoreCase("on");
+							break;
+						case "-m":
+							if (!value.equalsIgnoreCase("rows") && !value.equalsIgnoreCase("blockdigest")) {
+								System.out.println(
+										"Invalid choice for the signature mode. You can enter '-help' to get instructions.");
+								return;
+							}
+							mode = value.toLowerCase();
+							break;
 						case "-t":
 							fileType = "text";
 							int k = i;
@@ -206,6 +324,15 @@ public class MicoSign {
 							hasFile = true;
 							hasFileType = true;
 							break;
+						case "-j":
+							int workers = Integer.parseInt(value);
+							if (workers < 1) {
+								System.out.println(
+										"Invalid choice of the number of threads. You can enter '-help' to get instructions.");
+								return;
+							}
+							MTSSMethods.setParallelism(workers);
+							break;
 						default:
 							System.out.println("Invalid option: " + option);
 							return;
@@ -242,14 +369,43 @@ public class MicoSign {
 				int number = fixingNumbers.get(k);
 				String currentFile = files.get(j);
 				Specification spec = new Specification(CDSSType, HashType, d, CFFMethod, CFFMatrixType, fileType,
-						choice, number);
-				BlockedMessage blockedMessage = factory.createBlockedMessage(currentFile, spec); // block separation
-				int n = blockedMessage.getNumberOfBlocks();
+						choice, number, parameters, mode);
+				if (choice == 1 && number == AUTO) {
+					try {
+						BlockPlanner planner = new BlockPlanner(CDSSType, HashType, CFFMethod, d, mode);
+						spec = planner.plan(spec, contentSize(currentFile, spec), maxBlockBytes.get(k));
+						System.out.println("Planned " + spec.getNumber() + " blocks for " + currentFile + ": "
+								+ planner.getRows() + " rows, about " + planner.getHashedBytes()
+								+ " bytes hashed and a signature of " + planner.getEstimatedSize() + " bytes.");
+					} catch (Exception e) {
+						System.out.println("An error occurred while planning the blocks: " + e.getMessage());
+						return;
+					}
+				}
+				BlockedMessage blockedMessage = null;
+				BlockStream stream;
+				if (fileType.equalsIgnoreCase("image") || fileType.equalsIgnoreCase("video")
+						|| fileType.equalsIgnoreCase("tar") || Factory.isInflated(spec)) { // read as streams
+					stream = factory.createBlockStream(currentFile, spec);
+				} else {
+					blockedMessage = factory.createBlockedMessage(currentFile, spec); // block separation
+					stream = blockedMessage.stream();
+				}
+				int n = stream.getNumberOfBlocks();
 				CFF c = factory.createCFF(CFFMethod, d, n); // CFF construction
 				try {
 					String signatureFile = createNewFileName(currentFile, extension);
 					System.out.println("The corresponding signature file is: " + signatureFile);
-					mtss.MTSSignFile(blockedMessage, spec, c, keyPair.getPrivateKey(), signatureFile);
+					mtss.MTSSignFile(stream, spec, c, keyPair.getPrivateKey(), signatureFile);
+					if (writeIndex && blockedMessage != null && !fileType.equalsIgnoreCase("directory")) {
+						// streamed files and directories are not indexed
+						String indexFile = BlockIndex.indexFileName(currentFile);
+						BlockIndex.write(indexFile, currentFile, blockedMessage);
+						System.out.println("The corresponding block index is: " + indexFile);
+					} else if (writeIndex) {
+						System.out.println("No block index is written for " + currentFile + ": "
+								+ (blockedMessage == null ? "files read as streams" : "directories") + " are not indexed.");
+					}
 				} catch (Exception e) {
 					System.out.println("An error occurred during the MTSS signing process: " + e.getMessage());
 					return;
@@ -263,8 +419,34 @@ public class MicoSign {
 
 	}
 
+	// Method to parse a positive number of an option: -1 if it is not a positive
+	// long.
+	private static long positiveNumber(String number) {
+		try {
+			long value = Long.parseLong(number);
+			return value > 0 ? value : -1;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	// Method to get the size of what is signed: the content of an inflated file,
+	// or every file of a directory.
+	private static long contentSize(String file, Specification spec) throws IOException {
+		if (!spec.getFileType().equalsIgnoreCase("directory")) {
+			return GzipInput.size(file, Factory.isInflated(spec));
+		}
+		try (Stream<Path> paths = Files.walk(Paths.get(file))) {
+			return paths.filter(path -> Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS))
+					.mapToLong(path -> path.toFile().length()).sum();
+		}
+	}
+
 	// Method to add file extension.
 	public static String createNewFileName(String file, String extension) {
+		while (file.length() > 1 && (file.endsWith("/") || file.endsWith(File.separator))) {
+			file = file.substring(0, file.length() - 1); // keep the signature of a directory beside it
+		}
 		int lastDotIndex = file.lastIndexOf(".");
 		String newFileName;
 
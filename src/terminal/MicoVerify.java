@@ -6,6 +6,8 @@ import java.util.List;
 
 import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
 
+import block.BlockIndex;
+import block.BlockStream;
 import block.BlockedMessage;
 import cff.CFF;
 import mtss.Factory;
@@ -59,6 +61,12 @@ public class MicoVerify {
 			System.out.println("     A file and its corresponding signature.txt (one or more).");
 			System.out.println("     Each file and its signature should be separated by a comma.");
 			System.out.println("     Leave a space between pairs.");
+			System.out.println("     A block index <file>.idx written when signing is used if it still");
+			System.out.println("     matches the file.");
+			System.out.println();
+			System.out.println("  -j <integer>");
+			System.out.println("     Optionally set the number of threads hashing the rows of the CFF");
+			System.out.println("     in parallel (the number of processors by default).");
 
 			// MTSS
 		} else if (args.length >= 6) {
@@ -103,6 +111,15 @@ public class MicoVerify {
 								return;
 							}
 							break;
+						case "-j":
+							int workers = Integer.parseInt(value);
+							if (workers < 1) {
+								System.out.println(
+										"Invalid choice of the number of threads. You can enter '-help' to get instructions.");
+								return;
+							}
+							MTSSMethods.setParallelism(workers);
+							break;
 						default:
 							System.out.println("Invalid option: " + option);
 							return;
@@ -134,21 +151,39 @@ public class MicoVerify {
 					MTSSignature mtssignature = MTSSignature.readFromFile(signatureFile);
 					Specification specM = new Specification(mtssignature);
 					// CFF construction
-					BlockedMessage blockedMessageM = factory.createBlockedMessage(file, specM);
+					BlockedMessage blockedMessageM = null;
+					BlockStream streamM = null;
+					try {
+						if (specM.getFileType().equalsIgnoreCase("image")
+								|| specM.getFileType().equalsIgnoreCase("video")
+								|| specM.getFileType().equalsIgnoreCase("tar") || Factory.isInflated(specM)) { // read as streams
+							streamM = factory.createBlockStream(file, specM);
+						} else {
+							blockedMessageM = factory.createBlockedMessage(file, specM, BlockIndex.indexFileName(file));
+						}
+					} catch (IOException | IllegalArgumentException e) {
+						System.out.println("The file " + file + " could not be divided into blocks: " + e.getMessage());
+						continue;
+					}
+					if (streamM == null && blockedMessageM == null) {
+						System.out.println("The file " + file + " could not be divided into blocks.");
+						continue;
+					}
 					String CFFMethodM = specM.getCFFMethod();
-					int nM = blockedMessageM.getNumberOfBlocks();
+					int nM = streamM != null ? streamM.getNumberOfBlocks() : blockedMessageM.getNumberOfBlocks();
 					int dM = specM.getD();
 					CFF cM = factory.createCFF(CFFMethodM, dM, nM);
 
 					String signatureScheme = specM.getCDSSType();
 					AsymmetricKeyParameter publicKey = MTSSMethods.retrievePublicKey(signatureScheme, publicKeyFile);
 					try {
-						boolean verifyResult = mtss.MTSSVerifyFile(blockedMessageM, cM, signatureFile, GTMethod,
-								publicKey);
+						boolean verifyResult = streamM != null
+								? mtss.MTSSVerifyFile(streamM, cM, signatureFile, GTMethod, publicKey)
+								: mtss.MTSSVerifyFile(blockedMessageM, cM, signatureFile, GTMethod, publicKey);
 						System.out.println("The verification result is: " + verifyResult);
 					} catch (Exception e) {
 						System.out.println("An error occurred during the MTSS verification process: " + e.getMessage());
-						return;
+						continue;
 					}
 				} else {
 					System.out.println("Invalid arguments. You can enter '-help' to get instructions.");